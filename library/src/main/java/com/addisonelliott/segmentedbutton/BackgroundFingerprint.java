@@ -0,0 +1,119 @@
+package com.addisonelliott.segmentedbutton;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import java.util.ArrayList;
+
+/**
+ * Fingerprint of the inputs that a background paint of a SegmentedButton was created from
+ *
+ * Creating a background paint may rasterize the background drawable into a view-sized bitmap. The paint is setup
+ * again whenever the background clip path changes, which happens on every addView, visibility change of a neighboring
+ * button, radius change and size change, often with the exact same drawable and size. Comparing the fingerprint of the
+ * current inputs with the fingerprint of the last paint allows the paint to be reused when nothing changed.
+ *
+ * The fingerprint consists of the drawable instance, the size of its bounds and a generation that is incremented
+ * whenever the drawable is modified in place (e.g. setting the color of the current ColorDrawable).
+ *
+ * If the paint renders a bitmap that was rasterized for it, then the bitmap is also stored here so that it can be
+ * returned to the BitmapPool once the paint is replaced. Replacing the paint only retires the bitmap since the
+ * recorded display lists of the button may still draw it. Retired bitmaps are returned to the pool once the button
+ * has drawn with its new paint, see releaseRetiredRasters.
+ */
+final class BackgroundFingerprint
+{
+    // Whether or not the fingerprint contains the inputs of a paint
+    private boolean valid;
+    // Drawable, bounds size & generation that the paint was created from
+    private Drawable drawable;
+    private int width, height;
+    private int generation;
+    // Bitmap rasterized for the paint from the BitmapPool, null if the paint does not own a bitmap
+    private Bitmap raster;
+    // Bitmaps rasterized for previous paints that are waiting to be returned to the BitmapPool
+    private final ArrayList<Bitmap> retiredRasters = new ArrayList<>();
+
+    /**
+     * Whether or not a paint created from the given inputs would be the same as the paint of this fingerprint
+     */
+    boolean matches(Drawable drawable, int generation)
+    {
+        final Rect bounds = drawable.getBounds();
+
+        return valid && this.drawable == drawable && width == bounds.width() && height == bounds.height()
+            && this.generation == generation;
+    }
+
+    /**
+     * Store the inputs that a paint was created from
+     */
+    void set(Drawable drawable, int generation)
+    {
+        final Rect bounds = drawable.getBounds();
+
+        valid = true;
+        this.drawable = drawable;
+        width = bounds.width();
+        height = bounds.height();
+        this.generation = generation;
+    }
+
+    /**
+     * Store the bitmap that was rasterized for the paint, it is returned to the BitmapPool when the paint is replaced
+     */
+    void setRaster(Bitmap raster)
+    {
+        this.raster = raster;
+    }
+
+    /**
+     * Returns the bitmap rasterized for the paint, null if the paint does not own a bitmap
+     */
+    Bitmap getRaster()
+    {
+        return raster;
+    }
+
+    /**
+     * Retire the bitmap rasterized for the previous paint, called when the paint is replaced
+     *
+     * The bitmap is not returned to the BitmapPool yet since display lists recorded with the previous paint may still
+     * be drawn until the button is drawn again.
+     */
+    void retireRaster()
+    {
+        if (raster != null)
+            retiredRasters.add(raster);
+
+        raster = null;
+    }
+
+    /**
+     * Return the retired bitmaps to the BitmapPool
+     *
+     * This must only be called once no recorded display list references the previous paints, i.e. after the button
+     * has drawn with its new paint or once the button is detached from the window.
+     */
+    void releaseRetiredRasters()
+    {
+        if (retiredRasters.isEmpty())
+            return;
+
+        for (Bitmap bitmap : retiredRasters)
+            BitmapPool.put(bitmap);
+
+        retiredRasters.clear();
+    }
+
+    /**
+     * Clear the fingerprint so that the next paint is always created, this also releases the drawable reference and
+     * retires the raster
+     */
+    void clear()
+    {
+        valid = false;
+        drawable = null;
+        retireRaster();
+    }
+}
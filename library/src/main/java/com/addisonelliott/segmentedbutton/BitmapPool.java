@@ -0,0 +1,242 @@
+package com.addisonelliott.segmentedbutton;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.os.Build.VERSION;
+import android.os.Build.VERSION_CODES;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Process-wide pool of the bitmaps that SegmentedButton backgrounds are rasterized to
+ *
+ * Backgrounds that cannot be drawn directly with a paint are rasterized to a bitmap the size of the button (or the
+ * group in the group background mode). Whenever the size changes, e.g. during window resizes, split-screen changes or
+ * expand & collapse animations, a new bitmap is needed and the old one is no longer used. Rather than dropping the old
+ * bitmap for the garbage collector and allocating a new one each time, old bitmaps are returned to this pool and
+ * reused for the next raster.
+ *
+ * Bitmaps are stored in buckets by their allocation size. On API 19 and above, a bitmap is reused for any raster that
+ * fits in its allocation (up to 4x larger than needed so small rasters do not hold onto large allocations) by
+ * reconfiguring it to the new size. Below API 19, bitmaps can only be reused for rasters of the exact same size.
+ *
+ * The pool is bounded by the total byte size of the bitmaps, the largest bitmaps are evicted first once full.
+ *
+ * Note: Bitmaps returned to the pool must no longer be used by the caller since they will be erased & reused. This
+ * includes display lists recorded with a paint that draws the bitmap, so bitmaps behind a shader are only returned
+ * once the view has been drawn again with its new paint.
+ */
+public final class BitmapPool
+{
+    // Maximum total size of the bitmaps in the pool, 1/32nd of the max memory of the app
+    private static final long MAX_BYTES = Runtime.getRuntime().maxMemory() / 32;
+    // Largest allocation size, relative to the size needed, that a bitmap is reused for
+    private static final int MAX_SIZE_MULTIPLE = 4;
+
+    // Buckets of bitmaps keyed by the allocation size of the bitmaps, in bytes
+    private static final TreeMap<Integer, ArrayDeque<Bitmap>> buckets = new TreeMap<>();
+
+    // Total size of the bitmaps in the pool, in bytes
+    private static long byteCount;
+    // Number of times a bitmap was reused or had to be allocated
+    private static int hitCount, missCount;
+
+    private BitmapPool()
+    {
+    }
+
+    /**
+     * Return an erased bitmap of the given size & config, reusing a bitmap from the pool if one fits
+     *
+     * @param width  width of the bitmap in pixels
+     * @param height height of the bitmap in pixels
+     * @param config config of the bitmap
+     * @return transparent bitmap owned by the caller, this should be returned with put once no longer used
+     */
+    @NonNull
+    static synchronized Bitmap get(int width, int height, @NonNull Bitmap.Config config)
+    {
+        final int size = width * height * getBytesPerPixel(config);
+        final Bitmap bitmap = VERSION.SDK_INT >= VERSION_CODES.KITKAT ? removeFitting(width, height, config, size)
+            : removeExact(width, height, config, size);
+
+        if (bitmap == null)
+        {
+            ++missCount;
+            return Bitmap.createBitmap(width, height, config);
+        }
+
+        ++hitCount;
+        bitmap.eraseColor(Color.TRANSPARENT);
+        return bitmap;
+    }
+
+    /**
+     * Return a bitmap to the pool so that it can be reused
+     *
+     * Immutable or recycled bitmaps are ignored. If the bitmap is larger than the pool, then it is not stored.
+     *
+     * @param bitmap bitmap that is no longer used by the caller, null does nothing
+     */
+    static synchronized void put(@Nullable Bitmap bitmap)
+    {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable())
+            return;
+
+        final int size = getAllocationByteCount(bitmap);
+        if (size > MAX_BYTES)
+            return;
+
+        ArrayDeque<Bitmap> bucket = buckets.get(size);
+        if (bucket == null)
+        {
+            bucket = new ArrayDeque<>();
+            buckets.put(size, bucket);
+        }
+
+        // Bitmap is already in the pool, returning it twice would hand it out to two owners
+        for (Bitmap pooled : bucket)
+        {
+            if (pooled == bitmap)
+                return;
+        }
+
+        bucket.addLast(bitmap);
+        byteCount += size;
+
+        trimToSize(MAX_BYTES);
+    }
+
+    /**
+     * Returns the total size, in bytes, of the bitmaps currently stored in the pool
+     */
+    public static synchronized long getByteCount()
+    {
+        return byteCount;
+    }
+
+    /**
+     * Returns the maximum total size, in bytes, of the bitmaps stored in the pool
+     */
+    public static long getMaxByteCount()
+    {
+        return MAX_BYTES;
+    }
+
+    /**
+     * Returns the number of times a bitmap was reused from the pool
+     */
+    public static synchronized int getHitCount()
+    {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of times no bitmap in the pool fit and a new bitmap was allocated
+     */
+    public static synchronized int getMissCount()
+    {
+        return missCount;
+    }
+
+    /**
+     * Remove all bitmaps from the pool, e.g. in response to onTrimMemory
+     */
+    public static synchronized void clear()
+    {
+        trimToSize(0);
+    }
+
+    /**
+     * Remove the smallest bitmap that can be reconfigured to the size, or null if none fit
+     */
+    private static Bitmap removeFitting(int width, int height, Bitmap.Config config, int size)
+    {
+        Map.Entry<Integer, ArrayDeque<Bitmap>> entry = buckets.ceilingEntry(size);
+
+        if (entry == null || entry.getKey() > (long)size * MAX_SIZE_MULTIPLE)
+            return null;
+
+        final Bitmap bitmap = removeFromBucket(entry.getKey(), entry.getValue());
+        bitmap.reconfigure(width, height, config);
+        return bitmap;
+    }
+
+    /**
+     * Remove a bitmap with the exact size & config, or null if there is none
+     */
+    private static Bitmap removeExact(int width, int height, Bitmap.Config config, int size)
+    {
+        final ArrayDeque<Bitmap> bucket = buckets.get(size);
+        if (bucket == null)
+            return null;
+
+        for (Bitmap bitmap : bucket)
+        {
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height && bitmap.getConfig() == config)
+            {
+                bucket.remove(bitmap);
+                byteCount -= size;
+
+                if (bucket.isEmpty())
+                    buckets.remove(size);
+
+                return bitmap;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Remove the most recently returned bitmap from the bucket, removing the bucket if it is now empty
+     */
+    private static Bitmap removeFromBucket(int size, ArrayDeque<Bitmap> bucket)
+    {
+        final Bitmap bitmap = bucket.removeLast();
+        byteCount -= size;
+
+        if (bucket.isEmpty())
+            buckets.remove(size);
+
+        return bitmap;
+    }
+
+    /**
+     * Evict the largest bitmaps until the total size of the pool is no more than the max size
+     */
+    private static void trimToSize(long maxSize)
+    {
+        while (byteCount > maxSize && !buckets.isEmpty())
+        {
+            final Map.Entry<Integer, ArrayDeque<Bitmap>> entry = buckets.lastEntry();
+            removeFromBucket(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Returns the size of the memory allocated for the pixels of the bitmap, which may be larger than the size of the
+     * bitmap if it was reconfigured to a smaller size
+     */
+    private static int getAllocationByteCount(Bitmap bitmap)
+    {
+        return VERSION.SDK_INT >= VERSION_CODES.KITKAT ? bitmap.getAllocationByteCount() : bitmap.getByteCount();
+    }
+
+    private static int getBytesPerPixel(Bitmap.Config config)
+    {
+        switch (config)
+        {
+            case ALPHA_8:
+                return 1;
+            case RGB_565:
+            case ARGB_4444:
+                return 2;
+            default:
+                return 4;
+        }
+    }
+}
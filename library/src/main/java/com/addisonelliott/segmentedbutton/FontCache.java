@@ -0,0 +1,231 @@
+package com.addisonelliott.segmentedbutton;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.XmlResourceParser;
+import android.graphics.Typeface;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseArray;
+import android.util.TypedValue;
+import androidx.annotation.FontRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.res.ResourcesCompat;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+/**
+ * Process-wide cache of the fonts loaded from font resources for SegmentedButton
+ *
+ * Each font resource is loaded once per process, no matter how many buttons use it. Fonts bundled with the app (a
+ * font file or a font family of font files) are resolved synchronously, which is what ResourcesCompat does for them
+ * regardless of the API used, so buttons use them right away without a fallback typeface or an extra layout pass.
+ *
+ * Only downloadable fonts, i.e. font families from a font provider, are loaded with the non-blocking
+ * ResourcesCompat.FontCallback API so that inflating buttons does not wait on the font. Buttons display their text
+ * with a fallback typeface until the font is loaded and then swap in the real font.
+ *
+ * If multiple buttons request the same downloadable font while it is loading, the font is only loaded once and every
+ * button is notified when it arrives. Listeners are held weakly since downloading a font may take a long time, so a
+ * pending font never keeps a button or its activity alive. The caller must hold a strong reference to the listener
+ * until it is called.
+ *
+ * Note: This class should only be used from the UI thread. Listeners are called on the UI thread.
+ */
+public final class FontCache
+{
+    // Handler for the UI thread that font callbacks are called on
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Loaded fonts, keyed by font resource ID
+    private static final SparseArray<Typeface> fonts = new SparseArray<>();
+    // Weak references to the listeners waiting for a font that is currently loading, keyed by font resource ID
+    private static final SparseArray<ArrayList<WeakReference<OnFontLoadedListener>>> pendingListeners =
+        new SparseArray<>();
+
+    private FontCache()
+    {
+    }
+
+    /**
+     * Load the font for the given font resource, returning it if it is available right away
+     *
+     * If the font is already loaded or is bundled with the app, then it is returned and the listener is never called.
+     * Otherwise, the font is downloadable and null is returned, the listener is called once the font has been
+     * downloaded. If the font fails to load, then the listener is never called and the button keeps its fallback
+     * typeface.
+     *
+     * @param context   context used to load the font, the application context is used so the caller is not leaked
+     * @param fontResId font resource ID, e.g. R.font.my_font
+     * @param listener  listener called on the UI thread with the downloaded font, only a weak reference to the listener
+     *                  is held so the caller must keep a reference to it until it is called
+     * @return the font if it is available right away, otherwise null
+     */
+    @Nullable
+    static Typeface loadFont(@NonNull Context context, @FontRes final int fontResId,
+        @NonNull OnFontLoadedListener listener)
+    {
+        Typeface font = fonts.get(fontResId);
+        if (font != null)
+            return font;
+
+        final Context appContext = context.getApplicationContext();
+
+        // Bundled fonts are loaded synchronously by ResourcesCompat even when given a callback, the callback is only
+        // posted afterwards. Use the font now rather than drawing with the fallback typeface until the callback
+        if (!isDownloadableFont(appContext, fontResId))
+        {
+            try
+            {
+                font = ResourcesCompat.getFont(appContext, fontResId);
+            }
+            catch (Resources.NotFoundException e)
+            {
+                return null;
+            }
+
+            if (font != null)
+                fonts.put(fontResId, font);
+
+            return font;
+        }
+
+        // Font is already loading, wait for it along with the other listeners
+        ArrayList<WeakReference<OnFontLoadedListener>> listeners = pendingListeners.get(fontResId);
+        if (listeners != null)
+        {
+            listeners.add(new WeakReference<>(listener));
+            return null;
+        }
+
+        listeners = new ArrayList<>();
+        listeners.add(new WeakReference<>(listener));
+        pendingListeners.put(fontResId, listeners);
+
+        final ResourcesCompat.FontCallback callback = new ResourcesCompat.FontCallback()
+        {
+            @Override
+            public void onFontRetrieved(@NonNull Typeface typeface)
+            {
+                fonts.put(fontResId, typeface);
+
+                final ArrayList<WeakReference<OnFontLoadedListener>> listeners = pendingListeners.get(fontResId);
+                pendingListeners.remove(fontResId);
+
+                if (listeners != null)
+                {
+                    // Listeners of buttons that have been garbage collected are skipped
+                    for (WeakReference<OnFontLoadedListener> reference : listeners)
+                    {
+                        final OnFontLoadedListener listener = reference.get();
+                        if (listener != null)
+                            listener.onFontLoaded(typeface);
+                    }
+                }
+            }
+
+            @Override
+            public void onFontRetrievalFailed(int reason)
+            {
+                // Release the listeners, buttons will continue to use the fallback typeface
+                pendingListeners.remove(fontResId);
+            }
+        };
+
+        try
+        {
+            ResourcesCompat.getFont(appContext, fontResId, callback, mainHandler);
+        }
+        catch (Resources.NotFoundException e)
+        {
+            pendingListeners.remove(fontResId);
+        }
+
+        return null;
+    }
+
+    /**
+     * Whether or not the font resource is a downloadable font, i.e. a font family that is requested from a font
+     * provider rather than bundled with the app
+     *
+     * If the font resource cannot be read, then it is treated as downloadable so that it is loaded asynchronously.
+     */
+    private static boolean isDownloadableFont(@NonNull Context context, @FontRes int fontResId)
+    {
+        final Resources resources = context.getResources();
+
+        // Font files are always bundled, only a font family XML can refer to a font provider
+        final TypedValue value = new TypedValue();
+        try
+        {
+            resources.getValue(fontResId, value, true);
+        }
+        catch (Resources.NotFoundException e)
+        {
+            return true;
+        }
+
+        if (value.string == null || !value.string.toString().endsWith(".xml"))
+            return false;
+
+        final XmlResourceParser parser = resources.getXml(fontResId);
+        try
+        {
+            int type;
+            while ((type = parser.next()) != XmlPullParser.START_TAG && type != XmlPullParser.END_DOCUMENT)
+            {
+                // Skip to the root tag
+            }
+
+            if (type != XmlPullParser.START_TAG)
+                return true;
+
+            // Downloadable font families specify the provider authority, from either the android or app namespace
+            for (int i = 0; i < parser.getAttributeCount(); ++i)
+            {
+                if ("fontProviderAuthority".equals(parser.getAttributeName(i)))
+                    return true;
+            }
+
+            return false;
+        }
+        catch (XmlPullParserException | IOException e)
+        {
+            return true;
+        }
+        finally
+        {
+            parser.close();
+        }
+    }
+
+    /**
+     * Returns the number of fonts currently loaded
+     */
+    public static int size()
+    {
+        return fonts.size();
+    }
+
+    /**
+     * Remove all loaded fonts from the cache
+     *
+     * Buttons that already have a font will continue to use it, the font will be loaded again for new buttons.
+     */
+    public static void clear()
+    {
+        fonts.clear();
+    }
+
+    /**
+     * Listener called when a font has been loaded
+     */
+    interface OnFontLoadedListener
+    {
+        void onFontLoaded(@NonNull Typeface font);
+    }
+}
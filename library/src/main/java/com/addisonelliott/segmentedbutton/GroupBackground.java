@@ -0,0 +1,151 @@
+package com.addisonelliott.segmentedbutton;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Shader.TileMode;
+import android.graphics.drawable.Drawable;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.ArrayList;
+
+/**
+ * Background of a SegmentedButtonGroup that is shared by all of its buttons in the group background mode
+ *
+ * Rather than each button cloning the background drawable and rasterizing its own copy at the size of the button, the
+ * background is rendered once at the size of the group. Each button draws the slice of the background behind it by
+ * translating the shader of its paint by the position of the button within the group. Besides using N-fold less
+ * bitmap memory for N buttons, gradients & images flow continuously across the buttons instead of restarting in each
+ * button.
+ *
+ * Solid colors are rendered directly by the paint without a bitmap, just like the per-button backgrounds. All other
+ * drawables are rasterized once to a bitmap that is shared by every button.
+ *
+ * When the raster is replaced, the old raster is retired rather than returned to the BitmapPool right away since the
+ * display lists of the buttons may still draw it. The group returns the retired rasters to the pool once the buttons
+ * have been drawn with their new paints, see releaseRetiredBitmaps.
+ *
+ * Note: This class should only be used from the UI thread.
+ */
+final class GroupBackground
+{
+    // Drawable for the background, the bounds are set to the size of the group
+    private final Drawable drawable;
+    // Size of the group in pixels, 0 if not laid out yet
+    private int width, height;
+    // Raster of the drawable at the size of the group, null if not created yet or not required
+    private Bitmap bitmap;
+    // Previous rasters that are waiting to be returned to the BitmapPool
+    private final ArrayList<Bitmap> retiredBitmaps = new ArrayList<>();
+    // Incremented whenever the size changes, used by the buttons to detect when their paints are out of date
+    private int generation;
+
+    GroupBackground(@NonNull Drawable drawable)
+    {
+        this.drawable = drawable;
+    }
+
+    @NonNull
+    Drawable getDrawable()
+    {
+        return drawable;
+    }
+
+    int getGeneration()
+    {
+        return generation;
+    }
+
+    /**
+     * Set the size of the group that the background covers, the raster is recreated lazily if the size changes
+     *
+     * @return true if the size changed and the paints of the buttons must be created again
+     */
+    boolean setSize(int width, int height)
+    {
+        if (this.width == width && this.height == height)
+            return false;
+
+        this.width = width;
+        this.height = height;
+        drawable.setBounds(0, 0, width, height);
+        ++generation;
+
+        // Raster at the old size is reused for a later raster once the buttons have drawn with their new paints
+        retireBitmap();
+
+        return true;
+    }
+
+    /**
+     * Create a paint that renders the background in the coordinates of the group
+     *
+     * The shader of the paint, if any, is owned by the caller so that its local matrix can be translated to the
+     * position of the button. The bitmap behind the shader is shared by all buttons.
+     *
+     * Returns null if the group has not been laid out yet.
+     */
+    @Nullable
+    Paint createPaint()
+    {
+        if (width <= 0 || height <= 0)
+            return null;
+
+        final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+        if (SegmentedButton.setupDirectBackgroundPaint(drawable, paint))
+            return paint;
+
+        if (bitmap == null)
+        {
+            bitmap = BitmapPool.get(width, height, Bitmap.Config.ARGB_8888);
+            drawable.draw(new Canvas(bitmap));
+        }
+
+        paint.setShader(new BitmapShader(bitmap, TileMode.CLAMP, TileMode.CLAMP));
+        return paint;
+    }
+
+    /**
+     * Retire the raster once the background is replaced, it is returned to the BitmapPool by releaseRetiredBitmaps
+     */
+    void release()
+    {
+        retireBitmap();
+    }
+
+    /**
+     * Return the retired rasters to the BitmapPool
+     *
+     * This must only be called once no button draws with a paint that was created before the raster was retired, i.e.
+     * after the buttons have been drawn or once the group is detached from the window.
+     */
+    void releaseRetiredBitmaps()
+    {
+        if (retiredBitmaps.isEmpty())
+            return;
+
+        for (Bitmap retiredBitmap : retiredBitmaps)
+            BitmapPool.put(retiredBitmap);
+
+        retiredBitmaps.clear();
+    }
+
+    private void retireBitmap()
+    {
+        if (bitmap != null)
+            retiredBitmaps.add(bitmap);
+
+        bitmap = null;
+    }
+
+    /**
+     * Returns the raster of the background shared by the buttons, null if there is no raster
+     */
+    @Nullable
+    Bitmap getBitmap()
+    {
+        return bitmap;
+    }
+}
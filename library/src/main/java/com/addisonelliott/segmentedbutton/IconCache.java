@@ -0,0 +1,182 @@
+package com.addisonelliott.segmentedbutton;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.util.LruCache;
+import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Process-wide cache of the bitmaps that drawable icons are rasterized to by SegmentedButton
+ *
+ * Vector drawables are converted to bitmaps to work around a tinting bug on API 28, and tinted icons are converted to
+ * ALPHA_8 masks in the alpha mask drawable mode. Lists of buttons typically repeat the same few icons, so rather than
+ * each button rasterizing its own copy of the icon, buttons share one bitmap per icon through this cache.
+ *
+ * Bitmaps are keyed by the drawable resource ID, the size the icon is rasterized at, whether it is an alpha mask, the
+ * screen density and the UI mode (e.g. night mode) since these affect how the icon is drawn. The cache is bounded by
+ * the total byte size of the bitmaps and the least recently used bitmaps are evicted once full.
+ *
+ * Bitmaps returned from the cache are shared and must NOT be modified. Evicting a bitmap does not affect buttons that
+ * already use it, the bitmap is just no longer shared with new buttons.
+ *
+ * Note: Vector drawables with colors that depend on theme attributes are cached with the colors from the first theme
+ * they were loaded with. Call clear if the theme changes.
+ */
+public final class IconCache
+{
+    // Maximum total size of the bitmaps in the cache, 1/64th of the max memory of the app
+    private static final int MAX_BYTES = (int)Math.min(Runtime.getRuntime().maxMemory() / 64, Integer.MAX_VALUE);
+
+    private static final LruCache<Key, Bitmap> cache = new LruCache<Key, Bitmap>(MAX_BYTES)
+    {
+        @Override
+        protected int sizeOf(final Key key, final Bitmap bitmap)
+        {
+            return bitmap.getByteCount();
+        }
+    };
+
+    private IconCache()
+    {
+    }
+
+    /**
+     * Return the cached bitmap for the icon, or null if it has not been rasterized at this size & configuration
+     *
+     * @param context       context used to get the current density & UI mode
+     * @param drawableResId drawable resource ID of the icon
+     * @param width         width the icon is rasterized at, -1 for the intrinsic width
+     * @param height        height the icon is rasterized at, -1 for the intrinsic height
+     * @param alphaMask     whether the icon is rasterized as an ALPHA_8 mask rather than in full color
+     * @return shared bitmap that must not be modified
+     */
+    @Nullable
+    static Bitmap get(@NonNull Context context, @DrawableRes int drawableResId, int width, int height,
+        boolean alphaMask)
+    {
+        return cache.get(new Key(context, drawableResId, width, height, alphaMask));
+    }
+
+    /**
+     * Store the bitmap that the icon was rasterized to so that it can be shared with other buttons
+     *
+     * @param context       context used to get the current density & UI mode
+     * @param drawableResId drawable resource ID of the icon
+     * @param width         width the icon is rasterized at, -1 for the intrinsic width
+     * @param height        height the icon is rasterized at, -1 for the intrinsic height
+     * @param alphaMask     whether the icon is rasterized as an ALPHA_8 mask rather than in full color
+     * @param bitmap        rasterized icon, this must not be modified after being stored
+     */
+    static void put(@NonNull Context context, @DrawableRes int drawableResId, int width, int height,
+        boolean alphaMask, @NonNull Bitmap bitmap)
+    {
+        cache.put(new Key(context, drawableResId, width, height, alphaMask), bitmap);
+    }
+
+    /**
+     * Returns the total size, in bytes, of the bitmaps currently stored in the cache
+     */
+    public static int getByteCount()
+    {
+        return cache.size();
+    }
+
+    /**
+     * Returns the maximum total size, in bytes, of the bitmaps stored in the cache
+     */
+    public static int getMaxByteCount()
+    {
+        return cache.maxSize();
+    }
+
+    /**
+     * Returns the number of times an icon was found in the cache
+     */
+    public static int getHitCount()
+    {
+        return cache.hitCount();
+    }
+
+    /**
+     * Returns the number of times an icon was not found in the cache and had to be rasterized
+     */
+    public static int getMissCount()
+    {
+        return cache.missCount();
+    }
+
+    /**
+     * Returns the fraction of icon lookups that were found in the cache, from 0.0 to 1.0
+     */
+    public static float getHitRate()
+    {
+        final int hitCount = cache.hitCount();
+        final int total = hitCount + cache.missCount();
+
+        return total > 0 ? (float)hitCount / total : 0.0f;
+    }
+
+    /**
+     * Remove all bitmaps from the cache
+     *
+     * Buttons that already use a bitmap will continue to use it, the bitmap will just no longer be shared with new
+     * buttons.
+     */
+    public static void clear()
+    {
+        cache.evictAll();
+    }
+
+    /**
+     * Key containing all parameters that affect how an icon is rasterized
+     */
+    private static final class Key
+    {
+        private final int drawableResId;
+        private final int width, height;
+        private final boolean alphaMask;
+        private final int densityDpi;
+        private final int uiMode;
+
+        Key(Context context, int drawableResId, int width, int height, boolean alphaMask)
+        {
+            final Configuration configuration = context.getResources().getConfiguration();
+
+            this.drawableResId = drawableResId;
+            this.width = width;
+            this.height = height;
+            this.alphaMask = alphaMask;
+            this.densityDpi = context.getResources().getDisplayMetrics().densityDpi;
+            this.uiMode = configuration.uiMode;
+        }
+
+        @Override
+        public boolean equals(final Object o)
+        {
+            if (this == o)
+                return true;
+
+            if (!(o instanceof Key))
+                return false;
+
+            final Key key = (Key)o;
+            return drawableResId == key.drawableResId && width == key.width && height == key.height
+                && alphaMask == key.alphaMask && densityDpi == key.densityDpi && uiMode == key.uiMode;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int result = drawableResId;
+            result = 31 * result + width;
+            result = 31 * result + height;
+            result = 31 * result + (alphaMask ? 1 : 0);
+            result = 31 * result + densityDpi;
+            result = 31 * result + uiMode;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.addisonelliott.segmentedbutton;
+
+import android.graphics.RectF;
+
+/**
+ * Geometry of the selected button indicator, shared by the group and the buttons
+ *
+ * The indicator is described by a start button, the next visible end button and an offset from 0.0f to 1.0f. It
+ * starts at the offset within the start button and ends at the same offset within the end button, so an offset of
+ * 0.0f covers exactly the start button. The group uses this to clip the buttons and draw the indicator in the group
+ * indicator mode, and each button uses it to find the part of the indicator that covers the button.
+ */
+final class IndicatorGeometry
+{
+    private IndicatorGeometry()
+    {
+    }
+
+    /**
+     * Set rect to the indicator between the start & end buttons at the given offset
+     *
+     * The left positions may be in any coordinates as long as both buttons use the same coordinates.
+     *
+     * @return Width of the button that the indicator is nearest in size to, or the width of the indicator if that
+     * button has no width. Paths for the indicator are built for this width and scaled to the width of the indicator.
+     */
+    static float setIndicatorRect(RectF rect, float startLeft, float startWidth, float endLeft, float endWidth,
+        float offset, float top, float bottom)
+    {
+        rect.set(startLeft + offset * startWidth, top, endLeft + offset * endWidth, bottom);
+
+        final float baseWidth = offset < 0.5f ? startWidth : endWidth;
+        return baseWidth > 0.0f ? baseWidth : rect.width();
+    }
+}
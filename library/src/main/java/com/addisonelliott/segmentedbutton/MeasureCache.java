@@ -0,0 +1,87 @@
+package com.addisonelliott.segmentedbutton;
+
+/**
+ * Small cache of the last few measure results of a SegmentedButton, keyed by the width & height measure specs
+ *
+ * A button inside a LinearLayout with weights is typically measured two or three times per layout pass with the same
+ * measure specs. View.measure does not use its own measure cache while a layout is requested, so onMeasure would
+ * repeat the same work each time. Storing the last few results turns these repeated measures into lookups.
+ *
+ * Results are replaced in round-robin order once the cache is full. The cache must be cleared whenever anything that
+ * affects the measured size changes, such as the text, drawable or padding.
+ */
+final class MeasureCache
+{
+    // Number of measure results to store
+    private static final int CAPACITY = 3;
+
+    // Measure specs used as the key for each result
+    private final int[] widthMeasureSpecs = new int[CAPACITY];
+    private final int[] heightMeasureSpecs = new int[CAPACITY];
+    // Desired width, measured width & measured height for each result
+    private final int[] desiredWidths = new int[CAPACITY];
+    private final int[] widths = new int[CAPACITY];
+    private final int[] heights = new int[CAPACITY];
+
+    // Number of valid results stored & index to store the next result at
+    private int size, nextIndex;
+
+    /**
+     * Return the index of the result for the given measure specs, or -1 if there is no result stored
+     */
+    int indexOf(int widthMeasureSpec, int heightMeasureSpec)
+    {
+        for (int i = 0; i < size; ++i)
+        {
+            if (widthMeasureSpecs[i] == widthMeasureSpec && heightMeasureSpecs[i] == heightMeasureSpec)
+                return i;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Store the result for the given measure specs, replacing the oldest result if the cache is full
+     */
+    void put(int widthMeasureSpec, int heightMeasureSpec, int desiredWidth, int width, int height)
+    {
+        int index = indexOf(widthMeasureSpec, heightMeasureSpec);
+
+        if (index == -1)
+        {
+            index = nextIndex;
+            nextIndex = (nextIndex + 1) % CAPACITY;
+            size = Math.min(size + 1, CAPACITY);
+        }
+
+        widthMeasureSpecs[index] = widthMeasureSpec;
+        heightMeasureSpecs[index] = heightMeasureSpec;
+        desiredWidths[index] = desiredWidth;
+        widths[index] = width;
+        heights[index] = height;
+    }
+
+    int getDesiredWidth(int index)
+    {
+        return desiredWidths[index];
+    }
+
+    int getWidth(int index)
+    {
+        return widths[index];
+    }
+
+    int getHeight(int index)
+    {
+        return heights[index];
+    }
+
+    /**
+     * Remove all results from the cache
+     */
+    void clear()
+    {
+        size = 0;
+        nextIndex = 0;
+    }
+}
@@ -0,0 +1,160 @@
+package com.addisonelliott.segmentedbutton;
+
+import android.graphics.Bitmap;
+import android.os.Build.VERSION;
+import android.os.Build.VERSION_CODES;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.IdentityHashMap;
+
+/**
+ * Snapshot of the memory retained by a SegmentedButtonGroup and its buttons, grouped by category
+ *
+ * Bitmaps are counted with their allocation size in bytes. Objects whose size cannot be determined, such as paths,
+ * text layouts and ripple drawables, are only counted.
+ *
+ * Objects shared between buttons, e.g. icons from the IconCache, text layouts from the TextLayoutCache and the
+ * background raster in the group background mode, are only counted once. Objects held in the process-wide caches but
+ * not used by the group are not counted.
+ *
+ * See SegmentedButtonGroup.getMemoryFootprint
+ */
+public final class MemoryFootprint
+{
+    // Objects that have already been counted, used so that shared objects are only counted once
+    private final IdentityHashMap<Object, Boolean> counted = new IdentityHashMap<>();
+
+    private int backgroundBitmapCount;
+    private long backgroundBitmapBytes;
+    private int drawableBitmapCount;
+    private long drawableBitmapBytes;
+    private int pathCount;
+    private int textLayoutCount;
+    private int rippleDrawableCount;
+
+    MemoryFootprint()
+    {
+    }
+
+    /**
+     * Returns the number of bitmaps that backgrounds are rasterized to or drawn from
+     */
+    public int getBackgroundBitmapCount()
+    {
+        return backgroundBitmapCount;
+    }
+
+    /**
+     * Returns the total size, in bytes, of the bitmaps that backgrounds are rasterized to or drawn from
+     */
+    public long getBackgroundBitmapBytes()
+    {
+        return backgroundBitmapBytes;
+    }
+
+    /**
+     * Returns the number of bitmaps used for drawing the drawables of the buttons, e.g. rasterized vectors & masks
+     */
+    public int getDrawableBitmapCount()
+    {
+        return drawableBitmapCount;
+    }
+
+    /**
+     * Returns the total size, in bytes, of the bitmaps used for drawing the drawables of the buttons
+     */
+    public long getDrawableBitmapBytes()
+    {
+        return drawableBitmapBytes;
+    }
+
+    /**
+     * Returns the total size, in bytes, of all bitmaps
+     */
+    public long getTotalBitmapBytes()
+    {
+        return backgroundBitmapBytes + drawableBitmapBytes;
+    }
+
+    /**
+     * Returns the number of paths used for clipping & drawing the backgrounds and selected button
+     */
+    public int getPathCount()
+    {
+        return pathCount;
+    }
+
+    /**
+     * Returns the number of text layouts used for drawing the text of the buttons
+     */
+    public int getTextLayoutCount()
+    {
+        return textLayoutCount;
+    }
+
+    /**
+     * Returns the number of ripple drawables
+     */
+    public int getRippleDrawableCount()
+    {
+        return rippleDrawableCount;
+    }
+
+    void addBackgroundBitmap(@Nullable Bitmap bitmap)
+    {
+        if (markCounted(bitmap) && !bitmap.isRecycled())
+        {
+            ++backgroundBitmapCount;
+            backgroundBitmapBytes += getAllocationByteCount(bitmap);
+        }
+    }
+
+    void addDrawableBitmap(@Nullable Bitmap bitmap)
+    {
+        if (markCounted(bitmap) && !bitmap.isRecycled())
+        {
+            ++drawableBitmapCount;
+            drawableBitmapBytes += getAllocationByteCount(bitmap);
+        }
+    }
+
+    void addPath(@Nullable Object path)
+    {
+        if (markCounted(path))
+            ++pathCount;
+    }
+
+    void addTextLayout(@Nullable Object layout)
+    {
+        if (markCounted(layout))
+            ++textLayoutCount;
+    }
+
+    void addRippleDrawable(@Nullable Object rippleDrawable)
+    {
+        if (markCounted(rippleDrawable))
+            ++rippleDrawableCount;
+    }
+
+    /**
+     * Mark the object as counted, returns false if the object is null or has already been counted
+     */
+    private boolean markCounted(@Nullable Object object)
+    {
+        return object != null && counted.put(object, Boolean.TRUE) == null;
+    }
+
+    private static int getAllocationByteCount(Bitmap bitmap)
+    {
+        return VERSION.SDK_INT >= VERSION_CODES.KITKAT ? bitmap.getAllocationByteCount() : bitmap.getByteCount();
+    }
+
+    @NonNull
+    @Override
+    public String toString()
+    {
+        return "MemoryFootprint{backgroundBitmaps=" + backgroundBitmapCount + " (" + backgroundBitmapBytes
+            + " bytes), drawableBitmaps=" + drawableBitmapCount + " (" + drawableBitmapBytes + " bytes), paths="
+            + pathCount + ", textLayouts=" + textLayoutCount + ", rippleDrawables=" + rippleDrawableCount + "}";
+    }
+}
@@ -0,0 +1,92 @@
+package com.addisonelliott.segmentedbutton;
+
+import android.graphics.Canvas;
+import android.graphics.RecordingCanvas;
+import android.graphics.RenderNode;
+import android.os.Build.VERSION_CODES;
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+
+/**
+ * Layer of a SegmentedButton that is recorded once into a RenderNode and replayed on every draw
+ *
+ * The unselected & selected layers of a button only change when the content or style of the button changes. While
+ * animating the selected button, only the clip that the layers are drawn under moves. Replaying a recorded display
+ * list is nearly free on the UI thread compared to issuing every draw call of the layer again each frame.
+ *
+ * The layer is recorded again once invalidated or when the size of the button changes.
+ *
+ * Note: This class should only be used from the UI thread with a hardware-accelerated canvas.
+ */
+@RequiresApi(api = VERSION_CODES.Q)
+final class RenderNodeLayer
+{
+    private final RenderNode node;
+    // Whether or not the recorded display list is up to date
+    private boolean valid;
+
+    RenderNodeLayer(@NonNull String name)
+    {
+        node = new RenderNode(name);
+    }
+
+    /**
+     * Mark the layer as out of date so that it is recorded again on the next draw
+     */
+    void invalidate()
+    {
+        valid = false;
+    }
+
+    /**
+     * Draw the layer on the canvas, recording it first with the renderer if the layer is out of date
+     *
+     * @param canvas   hardware-accelerated canvas to draw the layer on
+     * @param width    width of the layer in pixels
+     * @param height   height of the layer in pixels
+     * @param renderer draws the content of the layer when recording
+     * @return true if the layer was recorded again
+     */
+    boolean draw(@NonNull Canvas canvas, int width, int height, @NonNull Renderer renderer)
+    {
+        boolean recorded = false;
+
+        if (!valid || !node.hasDisplayList() || node.getWidth() != width || node.getHeight() != height)
+        {
+            node.setPosition(0, 0, width, height);
+
+            final RecordingCanvas recordingCanvas = node.beginRecording();
+            try
+            {
+                renderer.render(recordingCanvas);
+            }
+            finally
+            {
+                node.endRecording();
+            }
+
+            valid = true;
+            recorded = true;
+        }
+
+        canvas.drawRenderNode(node);
+        return recorded;
+    }
+
+    /**
+     * Release the recorded display list, e.g. when the button is detached from the window
+     */
+    void release()
+    {
+        node.discardDisplayList();
+        valid = false;
+    }
+
+    /**
+     * Draws the content of a layer
+     */
+    interface Renderer
+    {
+        void render(@NonNull Canvas canvas);
+    }
+}
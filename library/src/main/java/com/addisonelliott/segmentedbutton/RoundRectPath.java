@@ -0,0 +1,138 @@
+package com.addisonelliott.segmentedbutton;
+
+import android.graphics.Path;
+import android.graphics.Path.Direction;
+import android.graphics.RectF;
+import androidx.annotation.NonNull;
+
+/**
+ * Cached paths of a rectangle with rounded corners, positioned at the origin
+ *
+ * A path is only built the first time a size & corner radii are requested, so the same Path instance can be drawn
+ * repeatedly. Besides avoiding allocations, this allows the renderer to reuse its tessellation of the path across
+ * frames since the path itself does not change.
+ *
+ * Paths for the last few widths are kept, one per button width, so that moving the selected button between buttons
+ * of different widths does not build a path each frame. While animating, the shape is drawn with the path for the
+ * nearest button width and the canvas is scaled horizontally to the animated width. Shapes that only move are drawn
+ * by translating the canvas to the position of the shape. Changing the height or corner radii removes all paths.
+ *
+ * Note: This class is not thread-safe and should only be used from the UI thread.
+ */
+final class RoundRectPath
+{
+    // Number of widths to store a path for
+    private static final int CAPACITY = 4;
+
+    // Paths & the width each path was built with, paths are reused when a width is replaced
+    private final Path[] paths = new Path[CAPACITY];
+    private final float[] widths = new float[CAPACITY];
+    // Number of valid paths stored & index to build the next path at
+    private int size, nextIndex;
+
+    // Height & corner radii shared by all of the stored paths
+    private float height;
+    private float topLeftRadius, topRightRadius, bottomRightRadius, bottomLeftRadius;
+
+    // Rectangle & corner radii used to build the path, stored to prevent allocations when building a path
+    private final RectF rect = new RectF();
+    private final float[] radii = new float[8];
+
+    // Number of times a path was built, used for performance testing
+    private int buildCount;
+
+    /**
+     * Return the path for a rectangle at the origin with the given size & corner radius for every corner
+     */
+    @NonNull
+    Path get(float width, float height, float radius)
+    {
+        return get(width, height, radius, radius, radius, radius);
+    }
+
+    /**
+     * Return the path for a rectangle at the origin with the given size & corner radii, building it only if there is
+     * no path stored for the width or the height or radii changed since the last call
+     *
+     * The path must not be modified by the caller.
+     */
+    @NonNull
+    Path get(float width, float height, float topLeftRadius, float topRightRadius, float bottomRightRadius,
+        float bottomLeftRadius)
+    {
+        // Paths for other widths do not apply to a new height or corner radii
+        if (this.height != height || this.topLeftRadius != topLeftRadius || this.topRightRadius != topRightRadius
+            || this.bottomRightRadius != bottomRightRadius || this.bottomLeftRadius != bottomLeftRadius)
+        {
+            this.height = height;
+            this.topLeftRadius = topLeftRadius;
+            this.topRightRadius = topRightRadius;
+            this.bottomRightRadius = bottomRightRadius;
+            this.bottomLeftRadius = bottomLeftRadius;
+            size = 0;
+            nextIndex = 0;
+        }
+
+        for (int i = 0; i < size; ++i)
+        {
+            if (widths[i] == width)
+                return paths[i];
+        }
+
+        // Build the path in place of the oldest path if the cache is full
+        final int index = nextIndex;
+        nextIndex = (nextIndex + 1) % CAPACITY;
+        size = Math.min(size + 1, CAPACITY);
+        ++buildCount;
+
+        if (paths[index] == null)
+            paths[index] = new Path();
+
+        final Path path = paths[index];
+        widths[index] = width;
+
+        path.reset();
+        rect.set(0.0f, 0.0f, width, height);
+
+        if (topLeftRadius == 0.0f && topRightRadius == 0.0f && bottomRightRadius == 0.0f && bottomLeftRadius == 0.0f)
+        {
+            path.addRect(rect, Direction.CW);
+        }
+        else
+        {
+            // Each corner has an X & Y radius, in the order top-left, top-right, bottom-right, bottom-left
+            radii[0] = radii[1] = topLeftRadius;
+            radii[2] = radii[3] = topRightRadius;
+            radii[4] = radii[5] = bottomRightRadius;
+            radii[6] = radii[7] = bottomLeftRadius;
+            path.addRoundRect(rect, radii, Direction.CW);
+        }
+
+        return path;
+    }
+
+    /**
+     * Add the stored paths to the memory footprint
+     */
+    void addTo(@NonNull MemoryFootprint footprint)
+    {
+        for (int i = 0; i < size; ++i)
+            footprint.addPath(paths[i]);
+    }
+
+    /**
+     * Returns the number of paths stored
+     */
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the number of times a path was built
+     */
+    int getBuildCount()
+    {
+        return buildCount;
+    }
+}
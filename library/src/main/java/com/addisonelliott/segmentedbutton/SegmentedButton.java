@@ -5,17 +5,20 @@ import android.content.Context;
 import android.content.res.ColorStateList;
 import android.content.res.TypedArray;
 import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
 import android.graphics.BitmapShader;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.DashPathEffect;
+import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Path;
-import android.graphics.Path.Direction;
+import android.graphics.PixelFormat;
 import android.graphics.PointF;
 import android.graphics.PorterDuff;
 import android.graphics.PorterDuffColorFilter;
 import android.graphics.Rect;
+import android.graphics.Region;
 import android.graphics.RectF;
 import android.graphics.Shader.TileMode;
 import android.graphics.Typeface;
@@ -25,18 +28,20 @@ import android.graphics.drawable.Drawable;
 import android.graphics.drawable.GradientDrawable;
 import android.graphics.drawable.RippleDrawable;
 import android.graphics.drawable.VectorDrawable;
+import android.net.Uri;
 import android.os.Build;
 import android.os.Build.VERSION;
 import android.os.Build.VERSION_CODES;
-import android.text.Layout;
-import android.text.StaticLayout;
-import android.text.TextPaint;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.TextUtils;
 import android.util.AttributeSet;
+import android.util.Log;
 import android.util.TypedValue;
 import android.view.Gravity;
 import android.view.View;
 import androidx.annotation.ColorInt;
+import androidx.annotation.DrawableRes;
 import androidx.annotation.FloatRange;
 import androidx.annotation.IntDef;
 import androidx.annotation.NonNull;
@@ -44,10 +49,16 @@ import androidx.annotation.Nullable;
 import androidx.appcompat.content.res.AppCompatResources;
 import androidx.core.content.res.ResourcesCompat;
 import androidx.core.graphics.drawable.DrawableCompat;
+import androidx.core.widget.TextViewCompat;
 import androidx.vectordrawable.graphics.drawable.VectorDrawableCompat;
 import codetail.graphics.drawables.DrawableHotspotTouch;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
+import java.util.concurrent.Executor;
 
 @SuppressWarnings("unused")
 @SuppressLint("RtlHardcoded")
@@ -56,6 +67,9 @@ public class SegmentedButton extends View
     // region Variables & Constants
     private static final String TAG = "SegmentedButton";
 
+    // Handler for the main thread, used to apply text that was prepared asynchronously
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
     // Bitmap used for creating bitmaps from the background & selected background drawables
     private static final Bitmap.Config BITMAP_CONFIG = Bitmap.Config.ARGB_8888;
 
@@ -63,6 +77,18 @@ public class SegmentedButton extends View
     // A ColorDrawable has no intrinsic size on its own, so this size is used instead
     private static final int COLORDRAWABLE_SIZE = 2;
 
+    // Modes for storing & drawing the drawable
+    // Normal mode draws the drawable as is with a color filter for the tint. Alpha mask mode stores a tinted drawable
+    // as an ALPHA_8 mask and draws it with the tint color, using a quarter of the memory of a full color bitmap
+    public final static int DRAWABLE_MODE_NORMAL = 0;
+    public final static int DRAWABLE_MODE_ALPHA_MASK = 1;
+
+    // Interface defined for linting purposes to ensure that a drawable mode value (integer type) is one of the valid
+    // values
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({DRAWABLE_MODE_NORMAL, DRAWABLE_MODE_ALPHA_MASK})
+    public @interface DrawableMode {}
+
     @IntDef(flag = true, value = {
         Gravity.LEFT,
         Gravity.RIGHT,
@@ -72,23 +98,46 @@ public class SegmentedButton extends View
     @Retention(RetentionPolicy.SOURCE)
     private @interface GravityOptions {}
 
-    // General purpose rectangle to prevent memory allocation in onDraw
-    private RectF rectF;
-    // General purpose path to prevent memory allocation in onDraw
-    private Path path;
+    // Classification of how much of the button is covered by the selected button view, used in onDraw to skip layers
+    // that would be entirely clipped away or covered up
+    // Hidden means none of the selected button view is visible, full means the selected button view covers the entire
+    // button and partial means the selected button view is partially visible, e.g. while animating
+    private static final int CLIP_STATE_HIDDEN = 0;
+    private static final int CLIP_STATE_FULL = 1;
+    private static final int CLIP_STATE_PARTIAL = 2;
 
-    // Text paint variable contains paint info for unselected and selected text
-    private TextPaint textPaint;
-    // Static layout used for positioning and drawing unselected and selected text
-    private StaticLayout textStaticLayout;
-    // Maximum text width assuming all text is on one line, this is used in onMeasure to calculate the desired width
-    private int textMaxWidth;
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({CLIP_STATE_HIDDEN, CLIP_STATE_FULL, CLIP_STATE_PARTIAL})
+    private @interface ClipState {}
 
-    // Position (X/Y) of the text and drawable
-    private PointF textPosition, drawablePosition;
+    // General purpose rectangle to prevent memory allocation in onDraw
+    private RectF rectF;
+    // Width of the button nearest in size to the selected button rectangle, see setupSelectedRect
+    private float selectedRectBaseWidth;
+    // Cached paths for the selected button background & border, positioned at the origin
+    // A path is stored for each button width and scaled to the width of the selected button rectangle while animating
+    // between buttons, so animation frames do not build any paths
+    private final RoundRectPath selectedButtonPath = new RoundRectPath();
+    private final RoundRectPath selectedButtonBorderPath = new RoundRectPath();
+
+    // Paint & layout information for the unselected and selected text
+    // Each state has its own paint and layout that is measured with the respective typeface, so no paint properties
+    // need to be changed in onDraw. These are recreated when the text or text style changes. Null if there is no text
+    private TextLayoutState textState, selectedTextState;
+
+    // Position (X/Y) of the unselected text, selected text and drawable
+    private PointF textPosition, selectedTextPosition, drawablePosition;
 
     // Clip path used to round background drawable edges to create rounded button group
     private Path backgroundClipPath;
+    // Cached path that the background clip path is built with, only rebuilt when the size or corners change
+    private final RoundRectPath backgroundClipRoundRect = new RoundRectPath();
+    // Whether or not the group clips its content to its rounded outline, in which case the button does not need to
+    // round its own corners
+    private boolean outlineClipping;
+    // Whether or not the group draws the backgrounds & selected button indicator, in which case the button only draws
+    // its text, drawable & ripple
+    private boolean groupIndicator;
     // Radius of the segmented button group used for creating background clip path
     private int backgroundRadius;
     // The button directly to the left and right of this current button
@@ -102,18 +151,42 @@ public class SegmentedButton extends View
     // The background paint object will only be used if a drawable is present and the background radius is greater
     // than 0 (meaning there is rounded corners). Similarly, for the selected background, if a drawable is present
     // and the background radius is greater than 0 OR there is a selected button radius.
-    // Paint objects will contain a BitmapShader that is linked to a Bitmap created from the respective drawables
+    // Paint objects will contain a solid color for ColorDrawable, otherwise a BitmapShader that is linked to a Bitmap
+    // created from the respective drawables
     //
     // Note: The BitmapShader approach is used rather than Canvas.clipPath because antialiasing is supported in the
     // former but not the latter
     private Paint backgroundPaint;
     private Paint selectedBackgroundPaint;
+    // Fingerprints of the inputs the background paints were created from, the paints are only created again when
+    // the inputs change
+    private final BackgroundFingerprint backgroundFingerprint = new BackgroundFingerprint();
+    private final BackgroundFingerprint selectedBackgroundFingerprint = new BackgroundFingerprint();
+    // Incremented whenever the background or selected background drawable is set or modified in place
+    private int backgroundGeneration, selectedBackgroundGeneration;
+    // Number of times a background paint was created, used for performance testing
+    private int backgroundRebuildCount;
+    // Backgrounds shared by all buttons in the group when the group background mode is used, null otherwise
+    // These are only used if the button does not have its own background or selected background drawable
+    private GroupBackground groupBackground, selectedGroupBackground;
+    // Whether or not the background & selected background drawables were passed down from the group rather than set
+    // on this button, these are removed in the group background mode so that the group backgrounds are drawn instead
+    private boolean isDefaultBackground, isDefaultSelectedBackground;
+
+    // Unselected & selected layers recorded into render nodes on API 29 and above, null until first drawn with a
+    // hardware-accelerated canvas
+    // The layers are replayed under the animated clip and only recorded again when the content or style changes
+    private RenderNodeLayer unselectedLayer, selectedLayer;
+    private final RenderNodeLayer.Renderer unselectedLayerRenderer = this::drawUnselectedContent;
+    private final RenderNodeLayer.Renderer selectedLayerRenderer = this::drawSelectedContent;
+    // Number of times a layer was recorded, used for performance testing
+    private int layerRecordCount;
+    // Translation from the coordinates of the group to the coordinates of this button, applied to the shaders of the
+    // background paints when a group background is used
+    private Matrix groupBackgroundMatrix;
 
     // Radius of the selected button used for creating a rounded selected button
     private int selectedButtonRadius;
-    // Corner radii for the selected button, this contains 8x values all set to selectedButtonRadius
-    // This is used to prevent allocation in the onDraw method
-    private float[] selectedButtonRadii;
 
     // Paint information for how the border should be drawn for the selected button, null indicates no border
     private Paint selectedButtonBorderPaint;
@@ -144,9 +217,23 @@ public class SegmentedButton extends View
     // Color filters used for tinting the button drawable in normal and when button is selected, will be null for no
     // tint
     private PorterDuffColorFilter drawableColorFilter, selectedDrawableColorFilter;
+    // Drawable & color filters that the drawable was last tinted with, used to skip setting them up again
+    // The unselected color filter is applied once when the drawable or tint changes rather than every time the button
+    // is drawn
+    private Drawable tintedDrawableSource;
+    private PorterDuffColorFilter appliedColorFilter, appliedSelectedColorFilter;
+    // Whether or not the selected color filter must be swapped in while drawing the selected drawable, false if the
+    // selected drawable looks the same as the unselected drawable or is drawn as an alpha mask
+    private boolean needsSelectedColorFilter;
+    // Whether or not the selected color filter is currently swapped in, the drawable invalidates itself when its color
+    // filter changes and this prevents the swap from redrawing the button over and over
+    private boolean isSwappingColorFilter;
 
     // Drawable to draw for the button. Can be drawn beside text or without text at all
     private Drawable drawable;
+    // Resource ID the drawable was loaded from, 0 if the drawable was set directly
+    // Used to rasterize vector drawables again at a new size when the drawable width or height changes
+    private int drawableResId;
     // Padding for the drawable in pixels, this will only be applied between the drawable and text (default value is 0)
     private int drawablePadding;
     // Whether or not there is a tint color for the drawable when unselected and/or selected
@@ -159,6 +246,17 @@ public class SegmentedButton extends View
     private int drawableWidth, drawableHeight;
     // Determines where to draw the drawable in relation to the text, can be one of GravityOptions types
     private int drawableGravity;
+    // Determines how the drawable is stored & drawn, can be one of DrawableMode types (default is normal)
+    private int drawableMode;
+    // ALPHA_8 mask of the drawable at its displayed size, only used in alpha mask mode when the drawable is tinted
+    // The mask may be shared with other buttons through the icon cache and must not be modified
+    private Bitmap drawableMask;
+    // Paints used for drawing the drawable mask with the unselected & selected tint color
+    private Paint drawableMaskPaint, selectedDrawableMaskPaint;
+    // Token for the latest drawable being loaded asynchronously via setDrawableAsync, null if there is none
+    // Setting the drawable again before the loaded drawable is applied will replace the token so the old one is
+    // discarded
+    private Object pendingDrawableToken;
 
     // Whether or not we have text, false indicates text should be empty
     private boolean hasText;
@@ -176,6 +274,44 @@ public class SegmentedButton extends View
     private TextUtils.TruncateAt ellipsize;
     // Typeface for displaying the text and selected text, created from the fontFamily & textStyle attributes. Default value for selected is the text typeface.
     private Typeface textTypeface, selectedTextTypeface;
+    // Listener waiting for the font that is currently being loaded for the text typefaces, null if none
+    // The font cache only holds a weak reference to the listener so that a pending font does not leak the button, so
+    // the button must hold it until the font is loaded
+    private FontCache.OnFontLoadedListener pendingFontListener;
+    // Whether or not a text layout profile was specified for this button, if not, the profile from the group is used
+    private boolean hasTextLayoutProfile;
+    // Line breaking, hyphenation, padding & justification parameters for the text
+    // Default value is the FAST profile for single-line text, otherwise the HIGH_QUALITY profile (platform defaults)
+    private TextLayoutProfile textLayoutProfile;
+
+    // Finds the largest text size that fits the width of the button, null if auto-sizing is disabled
+    private TextAutoSizer textAutoSizer;
+    // Largest text size allowed when auto-sizing, set by SegmentedButtonGroup so that all buttons share the same size
+    private float autoSizeTextSizeLimit = Float.MAX_VALUE;
+    // Text size that fits the width of the button from the last measure, ignoring the limit above
+    private float autoSizeFittedTextSize;
+    // Text size used for the text layouts, this is the text size unless auto-sizing is enabled
+    private float appliedTextSize;
+
+    // Token for the latest text being prepared asynchronously via setTextAsync, null if there is none
+    // Setting the text again before the prepared text is applied will replace the token so the old text is discarded
+    private Object pendingTextToken;
+    // Incremented each time the text or text style changes, used to detect if asynchronously prepared text was
+    // measured with an out of date style
+    private int textStyleGeneration;
+
+    // Whether or not the button has been measured, if so, the measure specs from the last measure are stored below
+    private boolean hasMeasureSpecs;
+    // Width & height measure specs given in the last call to onMeasure
+    private int lastWidthMeasureSpec, lastHeightMeasureSpec;
+    // Desired width of the button, i.e. the width to fit the content on one line, from the last call to measureContent
+    private int desiredWidth;
+    // Width & height of the button resolved from the measure specs in the last call to measureContent
+    private int contentWidth, contentHeight;
+    // Results of the last few measures, keyed by the measure specs. Cleared whenever the content or padding changes
+    private final MeasureCache measureCache = new MeasureCache();
+    // Number of measures that were calculated & number of measures that were retrieved from the measure cache
+    private int measureCount, memoizedMeasureCount;
 
     // Internal listener that is called when the visibility of this button is changed
     private OnVisibilityChangedListener onVisibilityChangedListener;
@@ -227,9 +363,6 @@ public class SegmentedButton extends View
         // Create general purpose rectangle, prevents memory allocation during onDraw
         rectF = new RectF();
 
-        // Create general purpose path, prevents memory allocation during onDraw
-        path = new Path();
-
         // Required in order for this button to 'consume' the ripple touch event
         setClickable(true);
     }
@@ -255,12 +388,6 @@ public class SegmentedButton extends View
         // Parse ripple color value and update the ripple
         setRipple(ta.getColor(R.styleable.SegmentedButton_rippleColor, Color.GRAY));
 
-        // Load drawable if available, otherwise variable will be null
-        if (ta.hasValue(R.styleable.SegmentedButton_drawable))
-        {
-            int drawableResId = ta.getResourceId(R.styleable.SegmentedButton_drawable, -1);
-            drawable = readCompatDrawable(context, drawableResId);
-        }
         drawablePadding = ta.getDimensionPixelSize(R.styleable.SegmentedButton_drawablePadding, 0);
         hasDrawableTint = ta.hasValue(R.styleable.SegmentedButton_drawableTint);
         drawableTint = ta.getColor(R.styleable.SegmentedButton_drawableTint, -1);
@@ -270,6 +397,16 @@ public class SegmentedButton extends View
         hasDrawableHeight = ta.hasValue(R.styleable.SegmentedButton_drawableHeight);
         drawableWidth = ta.getDimensionPixelSize(R.styleable.SegmentedButton_drawableWidth, -1);
         drawableHeight = ta.getDimensionPixelSize(R.styleable.SegmentedButton_drawableHeight, -1);
+        drawableMode = ta.getInt(R.styleable.SegmentedButton_drawableMode, DRAWABLE_MODE_NORMAL);
+
+        // Load drawable if available, otherwise variable will be null
+        // This is done after the drawable width & height are read so that vector drawables can be rasterized at the
+        // size they are displayed at
+        if (ta.hasValue(R.styleable.SegmentedButton_drawable))
+        {
+            drawableResId = ta.getResourceId(R.styleable.SegmentedButton_drawable, 0);
+            drawable = readCompatDrawable(context, drawableResId);
+        }
         drawableGravity = ta.getInteger(R.styleable.SegmentedButton_drawableGravity, Gravity.LEFT);
 
         hasText = ta.hasValue(R.styleable.SegmentedButton_text);
@@ -280,11 +417,51 @@ public class SegmentedButton extends View
         linesCount = ta.getInt(R.styleable.SegmentedButton_linesCount, Integer.MAX_VALUE);
         ellipsize = resolveEllipsizeType(ta.getInt(R.styleable.SegmentedButton_android_ellipsize, 0));
 
+        // Start with the predefined profile and then override any individual values that are given
+        hasTextLayoutProfile = ta.hasValue(R.styleable.SegmentedButton_textLayoutProfile)
+            || ta.hasValue(R.styleable.SegmentedButton_android_breakStrategy)
+            || ta.hasValue(R.styleable.SegmentedButton_android_hyphenationFrequency)
+            || ta.hasValue(R.styleable.SegmentedButton_android_includeFontPadding)
+            || ta.hasValue(R.styleable.SegmentedButton_android_justificationMode);
+        // The FAST profile is only a safe default for single-line text, otherwise keep the platform defaults
+        final int defaultProfileType = linesCount == 1 && !hasTextLayoutProfile ? TextLayoutProfile.PROFILE_FAST
+            : TextLayoutProfile.PROFILE_HIGH_QUALITY;
+        textLayoutProfile = TextLayoutProfile.fromType(ta.getInt(R.styleable.SegmentedButton_textLayoutProfile,
+            defaultProfileType));
+        if (ta.hasValue(R.styleable.SegmentedButton_android_breakStrategy))
+            textLayoutProfile = textLayoutProfile.withBreakStrategy(
+                ta.getInt(R.styleable.SegmentedButton_android_breakStrategy, 0));
+        if (ta.hasValue(R.styleable.SegmentedButton_android_hyphenationFrequency))
+            textLayoutProfile = textLayoutProfile.withHyphenationFrequency(
+                ta.getInt(R.styleable.SegmentedButton_android_hyphenationFrequency, 0));
+        if (ta.hasValue(R.styleable.SegmentedButton_android_includeFontPadding))
+            textLayoutProfile = textLayoutProfile.withIncludePad(
+                ta.getBoolean(R.styleable.SegmentedButton_android_includeFontPadding, true));
+        if (ta.hasValue(R.styleable.SegmentedButton_android_justificationMode))
+            textLayoutProfile = textLayoutProfile.withJustificationMode(
+                ta.getInt(R.styleable.SegmentedButton_android_justificationMode, 0));
+
         // Convert 14sp to pixels for default value on text size
         final float px14sp = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 14.0f,
             context.getResources().getDisplayMetrics());
         textSize = ta.getDimension(R.styleable.SegmentedButton_textSize, px14sp);
 
+        // Auto-size the text between the min & max text size if enabled
+        // Defaults are to shrink the text from the text size down to 12sp in steps of 1px
+        if (ta.getInt(R.styleable.SegmentedButton_autoSizeTextType, TextViewCompat.AUTO_SIZE_TEXT_TYPE_NONE)
+            == TextViewCompat.AUTO_SIZE_TEXT_TYPE_UNIFORM)
+        {
+            final float px12sp = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 12.0f,
+                context.getResources().getDisplayMetrics());
+            final float maxTextSize = ta.getDimension(R.styleable.SegmentedButton_autoSizeMaxTextSize, textSize);
+            final float minTextSize = ta.getDimension(R.styleable.SegmentedButton_autoSizeMinTextSize,
+                Math.min(px12sp, maxTextSize));
+            final float stepGranularity = ta.getDimension(R.styleable.SegmentedButton_autoSizeStepGranularity,
+                1.0f);
+
+            textAutoSizer = new TextAutoSizer(minTextSize, maxTextSize, stepGranularity);
+        }
+
         final boolean hasFontFamily = ta.hasValue(R.styleable.SegmentedButton_android_fontFamily);
         final int textStyle = ta.getInt(R.styleable.SegmentedButton_textStyle, Typeface.NORMAL);
         final int selectedTextStyle = ta.getInt(R.styleable.SegmentedButton_selectedTextStyle, textStyle);
@@ -292,96 +469,348 @@ public class SegmentedButton extends View
         // If a font family is present then load typeface with text style from that
         if (hasFontFamily)
         {
+            final int fontFamily = ta.getResourceId(R.styleable.SegmentedButton_android_fontFamily, 0);
+
+            if (fontFamily > 0 && !isInEditMode())
+            {
+                // Font resources are loaded once per process in the font cache
+                // Bundled fonts are available right away. If the font must be downloaded, then the default font is
+                // used until the font arrives so that inflating the button is not blocked on downloading the font
+                final Typeface font = loadFontFamily(context, fontFamily, textStyle, selectedTextStyle);
+
+                textTypeface = TextStyleRegistry.obtainTypeface(font, textStyle);
+                selectedTextTypeface = TextStyleRegistry.obtainTypeface(font, selectedTextStyle);
+            }
             // Note: TypedArray.getFont is used for Android O & above while ResourcesCompat.getFont is used for below
             // Experienced an odd bug in the design viewer of Android Studio where it would not work with only using
             // the ResourcesCompat.getFont function. Unsure of the reason but this fixes it
-            if (VERSION.SDK_INT >= VERSION_CODES.O)
+            else if (VERSION.SDK_INT >= VERSION_CODES.O)
+            {
+                final Typeface font = ta.getFont(R.styleable.SegmentedButton_android_fontFamily);
+                textTypeface = TextStyleRegistry.obtainTypeface(font, textStyle);
+                selectedTextTypeface = TextStyleRegistry.obtainTypeface(font, selectedTextStyle);
+            }
+            else if (fontFamily > 0)
             {
-                textTypeface = Typeface.create(ta.getFont(R.styleable.SegmentedButton_android_fontFamily), textStyle);
-                selectedTextTypeface = Typeface.create(ta.getFont(R.styleable.SegmentedButton_android_fontFamily), selectedTextStyle);
+                final Typeface font = ResourcesCompat.getFont(context, fontFamily);
+                textTypeface = TextStyleRegistry.obtainTypeface(font, textStyle);
+                selectedTextTypeface = TextStyleRegistry.obtainTypeface(font, selectedTextStyle);
             }
             else
             {
-                final int fontFamily = ta.getResourceId(R.styleable.SegmentedButton_android_fontFamily, 0);
-
-                if (fontFamily > 0)
-                {
-                    textTypeface = Typeface.create(ResourcesCompat.getFont(context, fontFamily), textStyle);
-                    selectedTextTypeface = Typeface.create(ResourcesCompat.getFont(context, fontFamily), selectedTextStyle);
-                }
-                else
-                {
-                    // On lower API Android versions, fontFamily returns 0 for default fonts such as "sans-serif" and
-                    // "monospace". Thus, we get the font as a string and then try to load that way
-                    textTypeface = Typeface.create(ta.getString(R.styleable.SegmentedButton_android_fontFamily),
-                        textStyle);
-                    selectedTextTypeface = Typeface.create(ta.getString(R.styleable.SegmentedButton_android_fontFamily),
-                        selectedTextStyle);
-                }
+                // On lower API Android versions, fontFamily returns 0 for default fonts such as "sans-serif" and
+                // "monospace". Thus, we get the font as a string and then try to load that way
+                final String fontFamilyName = ta.getString(R.styleable.SegmentedButton_android_fontFamily);
+                textTypeface = TextStyleRegistry.obtainTypeface(fontFamilyName, textStyle);
+                selectedTextTypeface = TextStyleRegistry.obtainTypeface(fontFamilyName, selectedTextStyle);
             }
         }
         else
         {
-            textTypeface = Typeface.create((Typeface)null, textStyle);
-            selectedTextTypeface = Typeface.create((Typeface)null, selectedTextStyle);
+            textTypeface = TextStyleRegistry.obtainTypeface((Typeface)null, textStyle);
+            selectedTextTypeface = TextStyleRegistry.obtainTypeface((Typeface)null, selectedTextStyle);
         }
 
         ta.recycle();
+
+        updateDrawableCallbacks(null);
+    }
+
+    /**
+     * Load the font family, returning it if it is available right away
+     *
+     * If the font is downloadable and not loaded yet, then null is returned and the font is swapped in for the text &
+     * selected text typeface once loaded. If the typeface is changed before the font is loaded, then the font is
+     * ignored.
+     */
+    @Nullable
+    private Typeface loadFontFamily(Context context, final int fontFamily, final int textStyle,
+        final int selectedTextStyle)
+    {
+        final FontCache.OnFontLoadedListener listener = new FontCache.OnFontLoadedListener()
+        {
+            @Override
+            public void onFontLoaded(@NonNull final Typeface font)
+            {
+                // Typeface was changed while the font was loading, keep that instead
+                if (pendingFontListener != this)
+                    return;
+
+                pendingFontListener = null;
+                textTypeface = TextStyleRegistry.obtainTypeface(font, textStyle);
+                selectedTextTypeface = TextStyleRegistry.obtainTypeface(font, selectedTextStyle);
+                refreshTextLayout();
+            }
+        };
+
+        final Typeface font = FontCache.loadFont(context, fontFamily, listener);
+
+        // Keep the listener alive until the font is downloaded since the font cache only holds it weakly
+        pendingFontListener = font == null ? listener : null;
+        return font;
     }
 
     private void initText()
     {
+        // Text style or content has changed, any text being prepared asynchronously with the old style is out of date
+        // The measured size may be different as well
+        ++textStyleGeneration;
+        measureCache.clear();
+
         // Text position is calculated regardless of if text exists
         // Not worth extra effort of not setting two float values
         textPosition = new PointF();
+        selectedTextPosition = new PointF();
 
         // If there is no text then do not bother
         if (!hasText)
         {
-            textStaticLayout = null;
+            textState = null;
+            selectedTextState = null;
             return;
         }
 
-        // Create text paint that will be used to draw the text on the canvas
-        textPaint = new TextPaint();
-        textPaint.setAntiAlias(true);
-        textPaint.setTextSize(textSize);
-        textPaint.setColor(textColor);
-        textPaint.setTypeface(textTypeface);
-
-        // Initial kickstart to setup the text layout by assuming the text will be all in one line
-        textMaxWidth = (int)textPaint.measureText(text);
-        if (Build.VERSION.SDK_INT >= VERSION_CODES.M)
+        // When auto-sizing, start with the max text size (or the last fitted size if the text was measured before)
+        // The size is fit to the width of the button when it is measured
+        if (textAutoSizer != null)
         {
-            textStaticLayout = StaticLayout.Builder
-                .obtain(text, 0, text.length(), textPaint, textMaxWidth)
-                .setMaxLines(linesCount)
-                .setEllipsize(ellipsize)
-                .build();
+            textAutoSizer.setText(text, textTypeface, selectedTextTypeface, linesCount, textLayoutProfile);
+
+            if (appliedTextSize < textAutoSizer.getMinTextSize() || appliedTextSize > textAutoSizer.getMaxTextSize())
+                appliedTextSize = textAutoSizer.getMaxTextSize();
+            autoSizeFittedTextSize = appliedTextSize;
         }
         else
-        {
-            textStaticLayout = new StaticLayout(text, textPaint, textMaxWidth, Layout.Alignment.ALIGN_NORMAL, 1.0f, 0,
-                false);
-        }
+            appliedTextSize = textSize;
+
+        createTextStates();
+    }
+
+    /**
+     * Create the paint & layout for the unselected and selected text with the applied text size
+     */
+    private void createTextStates()
+    {
+        textState = createTextState(text, appliedTextSize, textColor, textTypeface, linesCount, ellipsize,
+            textLayoutProfile, false);
+        selectedTextState = createSelectedTextState(text, appliedTextSize, hasSelectedTextColor ? selectedTextColor
+            : textColor, selectedTextTypeface, linesCount, ellipsize, textLayoutProfile, false, textState);
+    }
+
+    /**
+     * Create the text state for the unselected text
+     *
+     * This is static so that it can be safely called from a background thread. See TextLayoutState for the precompute
+     * parameter, which should only be true on a background thread.
+     */
+    private static TextLayoutState createTextState(String text, float textSize, @ColorInt int color,
+        Typeface typeface, int linesCount, @Nullable TextUtils.TruncateAt ellipsize, TextLayoutProfile profile,
+        boolean precompute)
+    {
+        return new TextLayoutState(text, textSize, color, typeface, linesCount, ellipsize, profile, precompute);
+    }
+
+    /**
+     * Create the text state for the selected text
+     *
+     * If the selected text has the same typeface as the unselected text, then the measurements of the unselected state
+     * are reused and only the color is changed (if needed) since the text has the same shape.
+     *
+     * This is static so that it can be safely called from a background thread. See TextLayoutState for the precompute
+     * parameter, which should only be true on a background thread.
+     */
+    private static TextLayoutState createSelectedTextState(String text, float textSize, @ColorInt int color,
+        Typeface typeface, int linesCount, @Nullable TextUtils.TruncateAt ellipsize, TextLayoutProfile profile,
+        boolean precompute, TextLayoutState textState)
+    {
+        if (textState.getPaint().getTypeface() == typeface)
+            return textState.withColor(color);
+
+        return new TextLayoutState(text, textSize, color, typeface, linesCount, ellipsize, profile, precompute);
     }
 
     private Drawable readCompatDrawable(Context context, int drawableResId)
     {
-        Drawable drawable = AppCompatResources.getDrawable(context, drawableResId);
+        return readCompatDrawable(context, drawableResId, hasDrawableWidth ? drawableWidth : -1,
+            hasDrawableHeight ? drawableHeight : -1, isDrawableMasked());
+    }
 
+    /**
+     * Load the drawable from its resource, rasterizing vector drawables on API 28
+     *
+     * This does not access any state of the button so that it can be called on a background thread from
+     * setDrawableAsync.
+     *
+     * @param context       context used to load the drawable
+     * @param drawableResId drawable resource ID
+     * @param width         width the drawable is displayed at, -1 for the intrinsic width
+     * @param height        height the drawable is displayed at, -1 for the intrinsic height
+     * @param masked        whether the drawable is drawn as an alpha mask, see isDrawableMasked
+     */
+    private static Drawable readCompatDrawable(Context context, int drawableResId, int width, int height,
+        boolean masked)
+    {
         // API 28 has a bug with vector drawables where the selected tint color is always applied to the drawable
-        // To prevent this, the vector drawable is converted to a bitmap
-        if ((VERSION.SDK_INT >= VERSION_CODES.LOLLIPOP && drawable instanceof VectorDrawable)
-            || drawable instanceof VectorDrawableCompat)
+        // On all other versions, the drawable is drawn directly, including vector drawables
+        // Drawables that are drawn as an alpha mask are never tinted with a color filter, so the bug does not apply
+        if (VERSION.SDK_INT != VERSION_CODES.P || masked)
+            return AppCompatResources.getDrawable(context, drawableResId);
+
+        // Vector drawables that were already converted to a bitmap are shared between buttons
+        // A size of -1 indicates the vector is rasterized at its intrinsic width or height
+        final Bitmap cachedBitmap = IconCache.get(context, drawableResId, width, height, false);
+        if (cachedBitmap != null)
+            return new BitmapDrawable(context.getResources(), cachedBitmap);
+
+        Drawable drawable = AppCompatResources.getDrawable(context, drawableResId);
+
+        // To prevent the tint bug, the vector drawable is converted to a bitmap
+        // The bitmap is the size the drawable is displayed at so that it is not scaled when drawn
+        if (drawable instanceof VectorDrawable || drawable instanceof VectorDrawableCompat)
         {
-            Bitmap bitmap = getBitmapFromVectorDrawable(drawable);
+            Bitmap bitmap = getBitmapFromVectorDrawable(drawable,
+                width != -1 ? width : drawable.getIntrinsicWidth(),
+                height != -1 ? height : drawable.getIntrinsicHeight());
+            IconCache.put(context, drawableResId, width, height, false, bitmap);
             return new BitmapDrawable(context.getResources(), bitmap);
         }
         else
             return drawable;
     }
 
+    /**
+     * Load the drawable from its resource again if it is a vector that was rasterized at the old drawable size
+     *
+     * This is only necessary on API 28, see readCompatDrawable
+     */
+    private void reloadRasterizedDrawable()
+    {
+        if (VERSION.SDK_INT == VERSION_CODES.P && drawableResId != 0 && drawable instanceof BitmapDrawable)
+        {
+            final Drawable oldDrawable = drawable;
+            drawable = readCompatDrawable(getContext(), drawableResId);
+            drawableMask = null;
+            updateDrawableCallbacks(oldDrawable);
+        }
+    }
+
+    /**
+     * Whether or not the drawable is drawn as an alpha mask with the tint color
+     *
+     * This is only the case in alpha mask mode when the drawable has a tint color, otherwise the colors of the
+     * drawable are needed
+     */
+    private boolean isDrawableMasked()
+    {
+        return drawableMode == DRAWABLE_MODE_ALPHA_MASK && hasDrawableTint;
+    }
+
+    /**
+     * Setup the drawable to be drawn with its tint colors, either as an alpha mask or with color filters
+     *
+     * This should be called when the drawable, its bounds, the tint colors or the drawable mode change.
+     */
+    private void setupDrawableTint()
+    {
+        setupDrawableMask();
+
+        // Color filters are only used when the drawable is not drawn as an alpha mask
+        setupTintedDrawables();
+    }
+
+    /**
+     * Create the ALPHA_8 mask of the drawable at its displayed size if the drawable is masked
+     *
+     * The mask is only recreated if the size of the drawable changes. Masks for drawables loaded from a resource are
+     * shared with other buttons through the icon cache.
+     */
+    private void setupDrawableMask()
+    {
+        if (drawable == null || !isDrawableMasked())
+        {
+            drawableMask = null;
+            return;
+        }
+
+        // Drawable bounds are the displayed size, these are not known until the button is laid out
+        final Rect bounds = drawable.getBounds();
+        final int width = bounds.width(), height = bounds.height();
+        if (width <= 0 || height <= 0)
+        {
+            drawableMask = null;
+            return;
+        }
+
+        // Nothing to do if the mask is already the right size
+        if (drawableMask != null && drawableMask.getWidth() == width && drawableMask.getHeight() == height)
+            return;
+
+        Bitmap mask = drawableResId != 0 ? IconCache.get(getContext(), drawableResId, width, height, true) : null;
+
+        if (mask == null)
+        {
+            mask = createDrawableMask(drawable, width, height);
+
+            if (drawableResId != 0)
+                IconCache.put(getContext(), drawableResId, width, height, true, mask);
+        }
+
+        drawableMask = mask;
+    }
+
+    /**
+     * Apply the unselected color filter to the drawable and record whether the selected color filter is different
+     *
+     * The unselected color filter is applied once here when the drawable, tint or drawable mask changes so that onDraw
+     * does not need to set it every time. The selected color filter is swapped in while drawing the selected drawable
+     * rather than drawing a copy of the drawable. A copy would not follow changes made to the caller's drawable
+     * afterwards, such as a new level, state or animation frame.
+     */
+    private void setupTintedDrawables()
+    {
+        if (drawable == null || drawableMask != null)
+        {
+            tintedDrawableSource = null;
+            needsSelectedColorFilter = false;
+            return;
+        }
+
+        final PorterDuffColorFilter selectedColorFilter = hasSelectedDrawableTint ? selectedDrawableColorFilter
+            : drawableColorFilter;
+
+        // Only apply the color filters again if the drawable or color filters changed
+        if (tintedDrawableSource != drawable || appliedColorFilter != drawableColorFilter
+            || appliedSelectedColorFilter != selectedColorFilter)
+        {
+            tintedDrawableSource = drawable;
+            appliedColorFilter = drawableColorFilter;
+            appliedSelectedColorFilter = selectedColorFilter;
+
+            // Mutate the drawable so that the color filter is not shared with other drawables from the same resource
+            drawable.mutate().setColorFilter(drawableColorFilter);
+
+            // If the selected drawable looks the same, the drawable is just drawn again without swapping color filters
+            needsSelectedColorFilter = selectedColorFilter != drawableColorFilter;
+        }
+    }
+
+    /**
+     * Draw the drawable without any tint into a new ALPHA_8 bitmap of the given size, only the alpha channel is kept
+     */
+    private static Bitmap createDrawableMask(Drawable drawable, int width, int height)
+    {
+        final Bitmap mask = Bitmap.createBitmap(width, height, Bitmap.Config.ALPHA_8);
+        final Canvas canvas = new Canvas(mask);
+        final Rect oldBounds = new Rect(drawable.getBounds());
+
+        drawable.setColorFilter(null);
+        drawable.setBounds(0, 0, width, height);
+        drawable.draw(canvas);
+        drawable.setBounds(oldBounds);
+
+        return mask;
+    }
+
 
     private void initDrawable()
     {
@@ -389,6 +818,12 @@ public class SegmentedButton extends View
         // Not worth extra effort of not setting two float values
         drawablePosition = new PointF();
 
+        // Paints for drawing the drawable as an alpha mask, the color is the tint color
+        drawableMaskPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+        drawableMaskPaint.setColor(drawableTint);
+        selectedDrawableMaskPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+        selectedDrawableMaskPaint.setColor(selectedDrawableTint);
+
         // If there is no drawable then do not bother
         if (drawable == null)
             return;
@@ -409,6 +844,100 @@ public class SegmentedButton extends View
     @SuppressLint("DrawAllocation")
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec)
+    {
+        // Store the measure specs so that content changes can be checked against them without a layout pass
+        hasMeasureSpecs = true;
+        lastWidthMeasureSpec = widthMeasureSpec;
+        lastHeightMeasureSpec = heightMeasureSpec;
+
+        // Buttons with layout weights are measured multiple times with the same specs in a single layout pass
+        // Use the stored result if the content has not changed since then
+        final int index = measureCache.indexOf(widthMeasureSpec, heightMeasureSpec);
+        if (index != -1)
+        {
+            ++memoizedMeasureCount;
+
+            desiredWidth = measureCache.getDesiredWidth(index);
+            contentWidth = measureCache.getWidth(index);
+            contentHeight = measureCache.getHeight(index);
+
+            // Text may have been measured with a different width since, measuring it again with the same width just
+            // retrieves the text layout from the caches
+            final int drawableWidth = drawable != null ? hasDrawableWidth ? this.drawableWidth
+                : drawable.getIntrinsicWidth() : 0;
+            measureTextWidth(contentWidth, drawableWidth);
+        }
+        else
+        {
+            ++measureCount;
+
+            measureContent(widthMeasureSpec, heightMeasureSpec);
+            measureCache.put(widthMeasureSpec, heightMeasureSpec, desiredWidth, contentWidth, contentHeight);
+        }
+
+        // Required to be called to notify the View of the width & height decided
+        setMeasuredDimension(contentWidth, contentHeight);
+    }
+
+    @Override
+    public void setPadding(final int left, final int top, final int right, final int bottom)
+    {
+        // Padding changes the measured size
+        // Note: The measure cache is null if this is called from the View constructor
+        if (measureCache != null)
+            measureCache.clear();
+
+        super.setPadding(left, top, right, bottom);
+    }
+
+    @Override
+    public void setPaddingRelative(final int start, final int top, final int end, final int bottom)
+    {
+        // Padding changes the measured size
+        // Note: The measure cache is null if this is called from the View constructor
+        if (measureCache != null)
+            measureCache.clear();
+
+        super.setPaddingRelative(start, top, end, bottom);
+    }
+
+    /**
+     * Returns the number of times the size of the button was calculated in onMeasure
+     *
+     * Along with getMemoizedMeasureCount, this is meant for performance testing.
+     */
+    public int getMeasureCount()
+    {
+        return measureCount;
+    }
+
+    /**
+     * Returns the number of times the size of the button was retrieved from a previous measure with the same measure
+     * specs in onMeasure
+     *
+     * Along with getMeasureCount, this is meant for performance testing.
+     */
+    public int getMemoizedMeasureCount()
+    {
+        return memoizedMeasureCount;
+    }
+
+    /**
+     * Reset the measure counts returned from getMeasureCount and getMemoizedMeasureCount to zero
+     */
+    public void resetMeasureCounts()
+    {
+        measureCount = 0;
+        memoizedMeasureCount = 0;
+    }
+
+    /**
+     * Calculate the desired width and the width & height of the button for the given measure specs
+     *
+     * The text layout is updated for the resolved width. The results are stored in desiredWidth, contentWidth and
+     * contentHeight.
+     */
+    private void measureContent(int widthMeasureSpec, int heightMeasureSpec)
     {
         // Measured width & height
         int width, height;
@@ -416,9 +945,12 @@ public class SegmentedButton extends View
         // Calculate drawable width, 0 if null, drawableWidth if set, otherwise intrinsic width
         final int drawableWidth = drawable != null ? hasDrawableWidth ? this.drawableWidth
             : drawable.getIntrinsicWidth() : 0;
-        // For the text width, assume that it is in a single line with no wrapping which would be textMaxWidth
+        // For the text width, assume that it is in a single line with no wrapping which would be the max width
         // This variable is used to calculate the desired width and the desire is for it all to be in a single line
-        final int textWidth = hasText ? textMaxWidth : 0;
+        // The selected text may have a different typeface, so use the larger of the two
+        // When auto-sizing, the desired width is the width of the text at the max text size
+        final int textWidth = !hasText ? 0 : textAutoSizer != null ? textAutoSizer.getMaxWidth()
+            : Math.max(textState.getMaxWidth(), selectedTextState.getMaxWidth());
 
         // Desired width will always have left & right padding regardless of horizontal/vertical gravity for the
         // drawable and text.
@@ -452,7 +984,7 @@ public class SegmentedButton extends View
         // Calculate drawable height, 0 if null, drawableHeight if set, otherwise intrinsic height
         final int drawableHeight = drawable != null ? hasDrawableHeight ? this.drawableHeight
             : drawable.getIntrinsicHeight() : 0;
-        final int textHeight = hasText ? textStaticLayout.getHeight() : 0;
+        final int textHeight = hasText ? Math.max(textState.getHeight(), selectedTextState.getHeight()) : 0;
 
         int desiredHeight = getPaddingTop() + getPaddingBottom();
 
@@ -476,8 +1008,44 @@ public class SegmentedButton extends View
         //      - MeasureSpec.UNSPECIFIED: Set height to desired size
         height = resolveSize(desiredHeight, heightMeasureSpec);
 
-        // Required to be called to notify the View of the width & height decided
-        setMeasuredDimension(width, height);
+        this.desiredWidth = desiredWidth;
+        contentWidth = width;
+        contentHeight = height;
+    }
+
+    /**
+     * Update the layout of the button after the text or drawable changes
+     *
+     * If the new content has the same desired width and results in the same measured size for the last measure specs,
+     * then the size of the button does not change. In that case, the text & drawable are just re-positioned and the
+     * button is redrawn, avoiding a layout pass of the entire group. Otherwise, a new layout is requested.
+     *
+     * @param oldDesiredWidth desired width of the button before the content changed
+     */
+    private void refreshContentLayout(int oldDesiredWidth)
+    {
+        // Layout is required if not measured yet, otherwise check the new content against the last measure specs
+        if (hasMeasureSpecs && !isLayoutRequested())
+        {
+            measureContent(lastWidthMeasureSpec, lastHeightMeasureSpec);
+            measureCache.put(lastWidthMeasureSpec, lastHeightMeasureSpec, desiredWidth, contentWidth, contentHeight);
+
+            if (desiredWidth == oldDesiredWidth && contentWidth == getMeasuredWidth()
+                && contentHeight == getMeasuredHeight())
+            {
+                // Calculate new positions for the text & drawable within the current size
+                updateSize();
+                invalidate();
+                return;
+            }
+        }
+
+        requestLayout();
+
+        // Calculate new positions and bounds for text & drawable
+        // This may be redundant in the case that onSizeChanged gets called but there are cases where the size doesnt
+        // change but the positions still need to be recalculated
+        updateSize();
     }
 
     @Override
@@ -492,9 +1060,38 @@ public class SegmentedButton extends View
         setupBackgroundClipPath();
     }
 
+    @Override
+    protected void onDetachedFromWindow()
+    {
+        super.onDetachedFromWindow();
+
+        // Release the display lists of the recorded layers, they are recorded again when drawn after being reattached
+        if (VERSION.SDK_INT >= VERSION_CODES.Q && unselectedLayer != null)
+        {
+            unselectedLayer.release();
+            selectedLayer.release();
+        }
+
+        // Display lists are no longer drawn once detached, so rasters of previous paints can be reused
+        backgroundFingerprint.releaseRetiredRasters();
+        selectedBackgroundFingerprint.releaseRetiredRasters();
+    }
+
+    @Override
+    protected void onLayout(final boolean changed, final int left, final int top, final int right, final int bottom)
+    {
+        super.onLayout(changed, left, top, right, bottom);
+
+        // Position of the button within the group may have changed, so the slice of the group background changes
+        if (changed && (groupBackground != null || selectedGroupBackground != null))
+        {
+            updateGroupBackgroundMatrix();
+            invalidate();
+        }
+    }
+
     /**
-     * Create new static text layout with new measured text width based off the total width of the button and the
-     * drawable width.
+     * Update text layout with new measured text width based off the total width of the button and the drawable width.
      *
      * This does nothing if the button has no text to display
      *
@@ -510,29 +1107,32 @@ public class SegmentedButton extends View
         // Set drawable width to be the drawable width if the drawable has horizontal gravity, otherwise the drawable
         // width doesnt matter
         // Text width is equal to the total width minus padding and drawable width
-        // But, if the maximum text width is smaller, just use that and we will manually pad it later
+        // But, if the maximum text width is smaller, the text state will just use that and we will manually pad it
+        // later
         int newDrawableWidth = Gravity.isHorizontal(drawableGravity) ? drawableWidth : 0;
-        int textWidth = Math.min(width - getPaddingLeft() - getPaddingRight() - newDrawableWidth, textMaxWidth);
+        int textWidth = width - getPaddingLeft() - getPaddingRight() - newDrawableWidth;
 
         // Odd case where there is not enough space for the padding and drawable width so we just return
         if (textWidth < 0)
             return;
 
-        // Create new static layout with width
-        // Old way of creating static layout was deprecated but I dont think there is any speed difference between
-        // the two
-        if (Build.VERSION.SDK_INT >= VERSION_CODES.M)
-        {
-            textStaticLayout = StaticLayout.Builder
-                .obtain(text, 0, text.length(), textPaint, textWidth)
-                .setMaxLines(linesCount)
-                .setEllipsize(ellipsize)
-                .build();
-        }
-        else
+        // Fit the text size to the width, the text states are only recreated if the size changes
+        // The fitted size is memoized per width, so this is cheap when measured with the same width again
+        if (textAutoSizer != null)
         {
-            textStaticLayout = new StaticLayout(text, textPaint, textWidth, Layout.Alignment.ALIGN_NORMAL, 1.0f, 0, false);
+            autoSizeFittedTextSize = textAutoSizer.getFittedTextSize(textWidth);
+
+            final float size = Math.min(autoSizeFittedTextSize, autoSizeTextSizeLimit);
+            if (size != appliedTextSize)
+            {
+                appliedTextSize = size;
+                createTextStates();
+            }
         }
+
+        // Measure the unselected and selected text separately since they may have different typefaces
+        textState.measure(textWidth);
+        selectedTextState.measure(textWidth);
     }
 
     /**
@@ -543,8 +1143,9 @@ public class SegmentedButton extends View
     private void updateSize()
     {
         final int width = getWidth(), height = getHeight();
-        final int textWidth = hasText ? textStaticLayout.getWidth() : 0;
-        final int textHeight = hasText ? textStaticLayout.getHeight() : 0;
+        // Space for the text is large enough to fit the unselected and selected text, each is centered in this space
+        final int textWidth = hasText ? Math.max(textState.getWidth(), selectedTextState.getWidth()) : 0;
+        final int textHeight = hasText ? Math.max(textState.getHeight(), selectedTextState.getHeight()) : 0;
         final int drawableWidth = drawable != null ? hasDrawableWidth ? this.drawableWidth
             : drawable.getIntrinsicWidth() : 0;
         final int drawableHeight = drawable != null ? hasDrawableHeight ? this.drawableHeight
@@ -600,6 +1201,16 @@ public class SegmentedButton extends View
             }
         }
 
+        // The text position calculated above is the top-left of the space for the text
+        // Center the unselected and selected text separately within this space since they may have different sizes
+        if (hasText)
+        {
+            selectedTextPosition.set(textPosition.x + (textWidth - selectedTextState.getWidth()) / 2.0f,
+                textPosition.y + (textHeight - selectedTextState.getHeight()) / 2.0f);
+            textPosition.offset((textWidth - textState.getWidth()) / 2.0f,
+                (textHeight - textState.getHeight()) / 2.0f);
+        }
+
         // Set bounds of drawable if it exists
         if (drawable != null)
         {
@@ -607,6 +1218,9 @@ public class SegmentedButton extends View
                 (int)drawablePosition.x + drawableWidth, (int)drawablePosition.y + drawableHeight);
         }
 
+        // Create the alpha mask of the drawable at the new size or apply its color filter if necessary
+        setupDrawableTint();
+
         // Set bounds of background drawable if it exists
         if (backgroundDrawable != null)
             backgroundDrawable.setBounds(0, 0, width, height);
@@ -636,142 +1250,161 @@ public class SegmentedButton extends View
         final int width = getWidth();
         final int height = getHeight();
 
-        // Draw background (unselected)
-        if (backgroundDrawable != null)
+        // On API 29 and above, the unselected & selected layers are recorded into render nodes that are replayed each
+        // frame, so only the clip changes while animating
+        if (unselectedLayer == null && VERSION.SDK_INT >= VERSION_CODES.Q && canvas.isHardwareAccelerated())
         {
-            // Draw the background with rounded corners if the background clip path and background paint objet are
-            // non-null. The background clip path will be present if the background has rounded corners. See
-            // setupBackgroundClipPath for more details. Ideally the backgroundPaint object will always be present
-            // when backgroundClipPath is present but there are select cases when the bitmap cannot be generated from
-            // the drawable because of unknown bounds on program start.
-            //
-            // Otherwise, the background is drawn normally via the drawable with no rounded corners
-            if (backgroundClipPath != null && backgroundPaint != null)
-                canvas.drawPath(backgroundClipPath, backgroundPaint);
-            else
-                backgroundDrawable.draw(canvas);
+            unselectedLayer = new RenderNodeLayer("SegmentedButton unselected layer");
+            selectedLayer = new RenderNodeLayer("SegmentedButton selected layer");
         }
 
-        // Draw text (unselected)
-        if (hasText)
-        {
-            canvas.save();
-            canvas.translate(textPosition.x, textPosition.y);
-            textPaint.setColor(textColor);
-            textPaint.setTypeface(textTypeface);
-            textStaticLayout.draw(canvas);
-            canvas.restore();
-        }
+        // Setup rectF with the part of the button covered by the selected button view
+        setupSelectedRect(width, height);
 
-        // Draw drawable (unselected)
-        if (drawable != null)
-        {
-            drawable.setColorFilter(drawableColorFilter);
-            drawable.draw(canvas);
-        }
+        // Classify how much of the button the selected button view covers so that layers which would be entirely
+        // clipped away or covered up are skipped rather than drawn & discarded
+        final int clipState = getClipState(width);
+
+        // Draw the unselected view unless the selected button view covers all of it
+        if (clipState != CLIP_STATE_FULL || !isUnselectedViewCovered())
+            drawUnselectedView(canvas);
+
+        // Draw the selected button view unless it is entirely clipped away
+        if (clipState != CLIP_STATE_HIDDEN)
+            drawSelectedView(canvas);
 
-        // Begin drawing selected button view
         canvas.save();
 
-        // Clip canvas for drawing selected button items
-        // The relativeClipPosition and isClippingLeft is used to clip part of the selected button view to allow for
-        // smooth animation between one button to the next
-        //
-        // If isClippingLeft is true, then the left side of the selected button is being clipped (i.e. shown) and the
-        // right side is hidden. If isClippingLeft is false, then the right side of the selected button is being
-        // clipped and the left side is hidden.
-        //
-        // The amount of the left or right side being shown is based on the relativeClippingPosition, a value from
-        // 0.0f to 1.0f representing the relative position on the button.
-        if (isClippingLeft)
+        // Clip to the background clip path if available
+        // This is used so the ripple effect will stop at the rounded corners of the background
+        if (backgroundClipPath != null)
         {
-            // If clipping the left, then relativeClipPosition * width represents the right side of the selected
-            // button that is shown/clipped.
-            //
-            // The left side of the clip rectangle is set to be the relative clip position minus 1.0f times the width
-            // of the button directly to the left of this button. This will be a negative value (relativeClipPosition
-            // ranges from 0.0f to 1.0f, so subtracting 1.0f will make it range from -1.0f to 0.0f) and is scaled by
-            // the button width directly to the left of this button. The width of this button may not be the same as
-            // the one to the left so this is necessary.
-            //
-            // The reason the left side is set to a negative value as opposed to just 0.0f is because it is necessary
-            // for a smooth animation when the selected button has rounded corners (i.e. selectedButtonRadius > 0).
-            // Without the negative left clip side, the rounded corners will not smoothly transition from the button
-            // to the left to this button.
-            //
-            // For the left-most button, the left button width is set to be the width of this button because it
-            // doesn't matter.
-            final float leftButtonWidth = isLeftButton() ? width : leftButton.getWidth();
-            rectF.set((relativeClipPosition - 1.0f) * leftButtonWidth, 0.0f, relativeClipPosition * width, height);
+            canvas.clipPath(backgroundClipPath);
         }
-        else
+
+        // Draw ripple drawable to show ripple effect on click
+        if (rippleDrawableLollipop != null)
         {
-            // Otherwise, if clipping the right, then the relativeClipPosition * width represents the left side of
-            // the selected button that is shown/clipped.
-            //
-            // The right side of the clip rectangle is set to be the width plus the relativeClipPosition times the
-            // width of the button directly to the right of this button. Note that the width of the button to the
-            // right may not be the same as the width of this button.
-            //
-            // The reason the right side is set to a value greater than the width as opposed to just the width itself
-            // is because it is necessary for a smooth animation when the selected button has rounded corners (i.e.
-            // selectedButtonRadius > 0). Without the correct right clip side, the rounded corners will not smoothly
-            // transition from the button to the right to this button.
-            final float rightButtonWidth = isRightButton() ? width : rightButton.getWidth();
-            rectF.set(relativeClipPosition * width, 0.0f, width + relativeClipPosition * rightButtonWidth, height);
+            rippleDrawableLollipop.draw(canvas);
         }
 
-        // Clip canvas for drawing the selected button view
-        // Allows for smooth animation between one button to the next
-        canvas.clipRect(rectF);
+        // Draw ripple drawable to show ripple effect on click
+        if (rippleDrawable != null)
+        {
+            rippleDrawable.draw(canvas);
+        }
 
-        // Draw background (selected)
-        //
-        // Draw the selected background with rounded corners in two cases:
-        //      1. Selected button has rounded corners (i.e. selectedButtonRadius > 0)
-        //      2. Background has a radius (i.e. backgroundRadius > 0)
-        // In these two cases, the background is drawn using a BitmapShader contained in the background paint object/
-        // Otherwise, the background is drawn normally via the drawable with no rounded corners.
-        if (selectedButtonRadius > 0 && selectedBackgroundPaint != null)
+        canvas.restore();
+
+        // Button has now been drawn with its current paints, so rasters of previous paints are no longer referenced
+        // by the display list of the button and can be reused
+        backgroundFingerprint.releaseRetiredRasters();
+        selectedBackgroundFingerprint.releaseRetiredRasters();
+    }
+
+    /**
+     * Draw the unselected background, text & drawable of the button
+     *
+     * rectF must contain the selected button rectangle, see setupSelectedRect.
+     */
+    private void drawUnselectedView(Canvas canvas)
+    {
+        // In the group indicator mode, the indicator is drawn underneath the button, so the unselected text & drawable
+        // are clipped out of the selected part of the button rather than being covered by the selected background
+        if (groupIndicator)
         {
-            path.reset();
-            path.addRoundRect(rectF, selectedButtonRadii, Direction.CW);
+            canvas.save();
 
-            canvas.drawPath(path, selectedBackgroundPaint);
+            // clipRect with a Region.Op is deprecated on Android O (API 26) and above, clipOutRect replaces it
+            if (VERSION.SDK_INT >= VERSION_CODES.O)
+                canvas.clipOutRect(rectF);
+            else
+                canvas.clipRect(rectF, Region.Op.DIFFERENCE);
         }
-        else if (backgroundClipPath != null && selectedBackgroundPaint != null)
+
+        if (VERSION.SDK_INT >= VERSION_CODES.Q && unselectedLayer != null && canvas.isHardwareAccelerated())
         {
-            canvas.drawPath(backgroundClipPath, selectedBackgroundPaint);
+            if (unselectedLayer.draw(canvas, getWidth(), getHeight(), unselectedLayerRenderer))
+                ++layerRecordCount;
         }
-        else if (selectedBackgroundDrawable != null)
+        else
         {
-            selectedBackgroundDrawable.draw(canvas);
+            drawUnselectedContent(canvas);
         }
 
-        // Draw text (selected)
+        if (groupIndicator)
+            canvas.restore();
+    }
+
+    /**
+     * Draw the content of the unselected layer, the background, text & drawable
+     *
+     * The content does not depend on the selected button rectangle so that it can be recorded into a render node.
+     */
+    private void drawUnselectedContent(Canvas canvas)
+    {
+        // Draw background (unselected)
+        // In the group indicator mode, the background is drawn by the group underneath the indicator instead
+        if (!groupIndicator)
+            drawBackground(canvas);
+
+        // Draw text (unselected)
         if (hasText)
         {
             canvas.save();
             canvas.translate(textPosition.x, textPosition.y);
-            // If a selected text color was specified, then use that, otherwise we want to default to the original
-            // text color
-            textPaint.setColor(hasSelectedTextColor ? selectedTextColor : textColor);
-            textPaint.setTypeface(selectedTextTypeface);
-            textStaticLayout.draw(canvas);
+            textState.draw(canvas);
             canvas.restore();
         }
 
-        // Draw drawable (selected)
-        if (drawable != null)
+        // Draw drawable (unselected)
+        // If the drawable is stored as an alpha mask, then draw the mask with the tint color
+        if (drawableMask != null)
+        {
+            canvas.drawBitmap(drawableMask, null, drawable.getBounds(), drawableMaskPaint);
+        }
+        else if (drawable != null)
         {
-            // If a selected drawable tint was used, then use that, but if it wasn't specified we want to stick with
-            // the normal tint color.
-            drawable.setColorFilter(hasSelectedDrawableTint ? selectedDrawableColorFilter : drawableColorFilter);
+            // Unselected color filter is already applied to the drawable, see setupTintedDrawables
             drawable.draw(canvas);
         }
+    }
+
+    /**
+     * Draw the selected background, text, drawable & border of the button clipped to the selected button rectangle
+     *
+     * rectF must contain the selected button rectangle, see setupSelectedRect. Note that rectF is modified when
+     * drawing the border.
+     */
+    private void drawSelectedView(Canvas canvas)
+    {
+        // Begin drawing selected button view
+        canvas.save();
+
+        // Clip canvas for drawing the selected button view
+        // Allows for smooth animation between one button to the next
+        canvas.clipRect(rectF);
+
+        // Draw background (selected) with rounded corners
+        // The rounded background follows the selected button rectangle, so it is drawn here rather than as part of the
+        // selected layer
+        // In the group indicator mode, the selected background is drawn once by the group as the indicator
+        if (!groupIndicator && isSelectedBackgroundRounded())
+            drawSelectedBackground(canvas);
+
+        if (VERSION.SDK_INT >= VERSION_CODES.Q && selectedLayer != null && canvas.isHardwareAccelerated())
+        {
+            if (selectedLayer.draw(canvas, getWidth(), getHeight(), selectedLayerRenderer))
+                ++layerRecordCount;
+        }
+        else
+        {
+            drawSelectedContent(canvas);
+        }
 
         // Draw a border around the selected button
-        if (selectedButtonBorderPaint != null)
+        // In the group indicator mode, the border is drawn by the group along with the indicator
+        if (selectedButtonBorderPaint != null && !groupIndicator)
         {
             // Get the border width from the paint information and divide by 2
             // Remember that rectF is the rectangle that was setup for the appropriate clip path above
@@ -787,36 +1420,258 @@ public class SegmentedButton extends View
 
             // Note: A path is used here rather than canvas.drawRoundRect because there was odd behavior on API 19
             // and particular devices where the border radius did not match the background radius.
-            path.reset();
-            path.addRoundRect(rectF, selectedButtonRadii, Direction.CW);
-
-            canvas.drawPath(path, selectedButtonBorderPaint);
+            // Like the selected background, the cached path is at the origin and the canvas is translated & scaled
+            // instead
+            final float baseWidth = selectedRectBaseWidth - 2.0f * (halfBorderWidth - 0.5f);
+            canvas.translate(rectF.left, rectF.top);
+            canvas.scale(rectF.width() / baseWidth, 1.0f);
+            canvas.drawPath(selectedButtonBorderPath.get(baseWidth, rectF.height(), selectedButtonRadius),
+                selectedButtonBorderPaint);
         }
 
         canvas.restore();
+    }
 
-        canvas.save();
+    /**
+     * Draw the content of the selected layer, the selected background without rounded corners, text & drawable
+     *
+     * The content does not depend on the selected button rectangle so that it can be recorded into a render node.
+     */
+    private void drawSelectedContent(Canvas canvas)
+    {
+        // Draw background (selected)
+        // In the group indicator mode, the selected background is drawn once by the group as the indicator
+        if (!groupIndicator && !isSelectedBackgroundRounded())
+            drawSelectedBackground(canvas);
 
-        // Clip to the background clip path if available
-        // This is used so the ripple effect will stop at the rounded corners of the background
-        if (backgroundClipPath != null)
+        // Draw text (selected)
+        if (hasText)
         {
-            canvas.clipPath(backgroundClipPath);
+            canvas.save();
+            canvas.translate(selectedTextPosition.x, selectedTextPosition.y);
+            // Selected text layout has its own paint with the selected text color & typeface
+            selectedTextState.draw(canvas);
+            canvas.restore();
         }
 
-        // Draw ripple drawable to show ripple effect on click
-        if (rippleDrawableLollipop != null)
+        // Draw drawable (selected)
+        // If a selected drawable tint was used, then use that, but if it wasn't specified we want to stick with
+        // the normal tint color.
+        if (drawableMask != null)
         {
-            rippleDrawableLollipop.draw(canvas);
+            canvas.drawBitmap(drawableMask, null, drawable.getBounds(),
+                hasSelectedDrawableTint ? selectedDrawableMaskPaint : drawableMaskPaint);
+        }
+        else if (needsSelectedColorFilter)
+        {
+            // Swap in the selected color filter while drawing, see setupTintedDrawables
+            isSwappingColorFilter = true;
+            drawable.setColorFilter(appliedSelectedColorFilter);
+            drawable.draw(canvas);
+            drawable.setColorFilter(appliedColorFilter);
+            isSwappingColorFilter = false;
+        }
+        else if (drawable != null)
+        {
+            // Selected drawable looks the same as the unselected drawable
+            drawable.draw(canvas);
+        }
+    }
+
+    /**
+     * Whether or not the selected background is drawn with the rounded corners of the selected button, in which case
+     * it follows the selected button rectangle rather than filling the button
+     */
+    private boolean isSelectedBackgroundRounded()
+    {
+        return selectedButtonRadius > 0 && selectedBackgroundPaint != null;
+    }
+
+    /**
+     * Classify how much of the button is covered by the selected button rectangle, rectF
+     *
+     * @return CLIP_STATE_HIDDEN if none of the selected button view is visible, CLIP_STATE_FULL if it covers the
+     * entire button and CLIP_STATE_PARTIAL otherwise
+     */
+    @ClipState
+    private int getClipState(int width)
+    {
+        if (rectF.right <= 0.0f || rectF.left >= width || rectF.right <= rectF.left)
+            return CLIP_STATE_HIDDEN;
+        else if (rectF.left <= 0.0f && rectF.right >= width)
+            return CLIP_STATE_FULL;
+        else
+            return CLIP_STATE_PARTIAL;
+    }
+
+    /**
+     * Whether or not the unselected view is entirely covered when the selected button view covers the entire button
+     *
+     * In the group indicator mode, the unselected text & drawable are clipped out of the selected part of the button
+     * and the background is drawn by the group, so nothing is left to draw. Otherwise, the unselected view is only
+     * covered if the selected background is opaque and fills the same area as the background, which is not the case
+     * when the selected button has rounded corners.
+     */
+    private boolean isUnselectedViewCovered()
+    {
+        if (groupIndicator)
+            return true;
+
+        if (selectedButtonRadius > 0)
+            return false;
+
+        // Selected background is drawn from the drawable of the button, or otherwise the slice of the group selected
+        // background
+        final Drawable drawable;
+        if (selectedBackgroundDrawable != null)
+            drawable = selectedBackgroundDrawable;
+        else if (selectedGroupBackground != null && selectedBackgroundPaint != null)
+            drawable = selectedGroupBackground.getDrawable();
+        else
+            return false;
+
+        return drawable.getOpacity() == PixelFormat.OPAQUE;
+    }
+
+    /**
+     * Draw the unselected background of the button
+     *
+     * This is a package-private function so that SegmentedButtonGroup can draw the background underneath the
+     * indicator in the group indicator mode.
+     */
+    void drawBackground(Canvas canvas)
+    {
+        final int width = getWidth();
+        final int height = getHeight();
+
+        // When a group background is used, the slice of the group background is drawn with the background paint
+        if (backgroundDrawable == null && backgroundPaint != null)
+        {
+            if (backgroundClipPath != null)
+                canvas.drawPath(backgroundClipPath, backgroundPaint);
+            else
+                canvas.drawRect(0.0f, 0.0f, width, height, backgroundPaint);
+        }
+        else if (backgroundDrawable != null)
+        {
+            // Draw the background with rounded corners if the background clip path and background paint objet are
+            // non-null. The background clip path will be present if the background has rounded corners. See
+            // setupBackgroundClipPath for more details. Ideally the backgroundPaint object will always be present
+            // when backgroundClipPath is present but there are select cases when the bitmap cannot be generated from
+            // the drawable because of unknown bounds on program start.
+            //
+            // Otherwise, the background is drawn normally via the drawable with no rounded corners
+            if (backgroundClipPath != null && backgroundPaint != null)
+                canvas.drawPath(backgroundClipPath, backgroundPaint);
+            else
+                backgroundDrawable.draw(canvas);
+        }
+    }
+
+    /**
+     * Draw the selected background of the button
+     *
+     * If the selected background has rounded corners, then it is drawn within the selected button rectangle, rectF.
+     * Otherwise, it fills the button and the canvas must already be clipped to the selected button rectangle.
+     */
+    private void drawSelectedBackground(Canvas canvas)
+    {
+        // Draw the selected background with rounded corners in two cases:
+        //      1. Selected button has rounded corners (i.e. selectedButtonRadius > 0)
+        //      2. Background has a radius (i.e. backgroundRadius > 0)
+        // In these two cases, the background is drawn using the color or shader contained in the background paint
+        // object
+        // Otherwise, the background is drawn normally via the drawable with no rounded corners.
+        if (selectedButtonRadius > 0 && selectedBackgroundPaint != null)
+        {
+            // Cached path is at the origin & built for the nearest button width, so translate and scale the canvas to
+            // the selected button rather than building a path each frame
+            canvas.save();
+            canvas.translate(rectF.left, rectF.top);
+            canvas.scale(rectF.width() / selectedRectBaseWidth, 1.0f);
+            canvas.drawPath(selectedButtonPath.get(selectedRectBaseWidth, rectF.height(), selectedButtonRadius),
+                selectedBackgroundPaint);
+            canvas.restore();
+        }
+        else if (backgroundClipPath != null && selectedBackgroundPaint != null)
+        {
+            canvas.drawPath(backgroundClipPath, selectedBackgroundPaint);
+        }
+        else if (selectedBackgroundDrawable != null)
+        {
+            selectedBackgroundDrawable.draw(canvas);
+        }
+        else if (selectedBackgroundPaint != null)
+        {
+            // Slice of the group selected background, the canvas is already clipped to the selected button
+            canvas.drawRect(0.0f, 0.0f, getWidth(), getHeight(), selectedBackgroundPaint);
+        }
+    }
+
+    /**
+     * Setup rectF to the rectangle of the selected button view within the button, based on the relative clip position
+     *
+     * This is the selected button indicator (see IndicatorGeometry) in the coordinates of this button, so the buttons
+     * and the group agree on where the indicator is. selectedRectBaseWidth is set to the width of the button that the
+     * rectangle is nearest in size to. The rectangle is exactly this width when it is not between two buttons.
+     */
+    private void setupSelectedRect(int width, int height)
+    {
+        // Clip canvas for drawing selected button items
+        // The relativeClipPosition and isClippingLeft is used to clip part of the selected button view to allow for
+        // smooth animation between one button to the next
+        //
+        // If isClippingLeft is true, then the left side of the selected button is being clipped (i.e. shown) and the
+        // right side is hidden. If isClippingLeft is false, then the right side of the selected button is being
+        // clipped and the left side is hidden.
+        //
+        // The amount of the left or right side being shown is based on the relativeClippingPosition, a value from
+        // 0.0f to 1.0f representing the relative position on the button.
+        if (isClippingLeft)
+        {
+            // If clipping the left, then relativeClipPosition * width represents the right side of the selected
+            // button that is shown/clipped.
+            //
+            // The left side of the clip rectangle is set to be the relative clip position minus 1.0f times the width
+            // of the button directly to the left of this button. This will be a negative value (relativeClipPosition
+            // ranges from 0.0f to 1.0f, so subtracting 1.0f will make it range from -1.0f to 0.0f) and is scaled by
+            // the button width directly to the left of this button. The width of this button may not be the same as
+            // the one to the left so this is necessary.
+            //
+            // The reason the left side is set to a negative value as opposed to just 0.0f is because it is necessary
+            // for a smooth animation when the selected button has rounded corners (i.e. selectedButtonRadius > 0).
+            // Without the negative left clip side, the rounded corners will not smoothly transition from the button
+            // to the left to this button.
+            //
+            // For the left-most button, the left button width is set to be the width of this button because it
+            // doesn't matter.
+            //
+            // In other words, this button is the end button of the indicator and the button to the left is the start
+            // button
+            final float leftButtonWidth = isLeftButton() ? width : leftButton.getWidth();
+            selectedRectBaseWidth = IndicatorGeometry.setIndicatorRect(rectF, -leftButtonWidth, leftButtonWidth, 0.0f,
+                width, relativeClipPosition, 0.0f, height);
         }
-
-        // Draw ripple drawable to show ripple effect on click
-        if (rippleDrawable != null)
+        else
         {
-            rippleDrawable.draw(canvas);
+            // Otherwise, if clipping the right, then the relativeClipPosition * width represents the left side of
+            // the selected button that is shown/clipped.
+            //
+            // The right side of the clip rectangle is set to be the width plus the relativeClipPosition times the
+            // width of the button directly to the right of this button. Note that the width of the button to the
+            // right may not be the same as the width of this button.
+            //
+            // The reason the right side is set to a value greater than the width as opposed to just the width itself
+            // is because it is necessary for a smooth animation when the selected button has rounded corners (i.e.
+            // selectedButtonRadius > 0). Without the correct right clip side, the rounded corners will not smoothly
+            // transition from the button to the right to this button.
+            //
+            // In other words, this button is the start button of the indicator and the button to the right is the end
+            // button
+            final float rightButtonWidth = isRightButton() ? width : rightButton.getWidth();
+            selectedRectBaseWidth = IndicatorGeometry.setIndicatorRect(rectF, 0.0f, width, width, rightButtonWidth,
+                relativeClipPosition, 0.0f, height);
         }
-
-        canvas.restore();
     }
 
     /**
@@ -842,8 +1697,8 @@ public class SegmentedButton extends View
         // Update relative clip position
         relativeClipPosition = relativePosition;
 
-        // Redraw
-        invalidate();
+        // Redraw, the recorded layers are replayed under the new clip
+        invalidateView();
     }
 
     /**
@@ -869,8 +1724,8 @@ public class SegmentedButton extends View
         // Update relative clip position
         relativeClipPosition = relativePosition;
 
-        // Redraw
-        invalidate();
+        // Redraw, the recorded layers are replayed under the new clip
+        invalidateView();
     }
 
     // endregion
@@ -942,7 +1797,69 @@ public class SegmentedButton extends View
         // Return true if the drawable is the ripple drawable (backport or regular)
         // Normally the super class handles this automatically for the background drawable but the ripple drawable is
         // not the background in this instance
-        return who == rippleDrawableLollipop || who == rippleDrawable || super.verifyDrawable(who);
+        // The drawable & backgrounds are drawn by this class as well, so they are allowed to animate
+        return who == rippleDrawableLollipop || who == rippleDrawable || isContentDrawable(who)
+            || super.verifyDrawable(who);
+    }
+
+    /**
+     * Redraw the button when one of its drawables changes
+     *
+     * The drawable & backgrounds are recorded into the unselected & selected layers, so the layers are recorded again
+     * before redrawing. Otherwise, the layers would be replayed with the old content of the drawable. The ripple
+     * drawables are drawn outside of the layers, so they are handled by the super class.
+     *
+     * @param who Drawable that changed
+     */
+    @Override
+    public void invalidateDrawable(@NonNull final Drawable who)
+    {
+        if (isContentDrawable(who))
+        {
+            // Drawable invalidates itself when the selected color filter is swapped in while drawing, but the content
+            // of the drawable did not change
+            if (isSwappingColorFilter)
+                return;
+
+            invalidateLayers();
+            invalidateView();
+        }
+        else
+        {
+            super.invalidateDrawable(who);
+        }
+    }
+
+    /**
+     * Whether or not the drawable is the drawable or one of the backgrounds drawn in the layers of the button
+     */
+    private boolean isContentDrawable(@Nullable Drawable who)
+    {
+        return who != null && (who == drawable || who == backgroundDrawable || who == selectedBackgroundDrawable);
+    }
+
+    /**
+     * Register the button as the callback of the drawable & backgrounds so that they redraw the button when they change
+     * or animate, and remove the callback from a drawable that the button no longer draws
+     *
+     * This should be called whenever the drawable or one of the backgrounds is replaced.
+     *
+     * @param oldDrawable Drawable that was replaced, null if none
+     */
+    private void updateDrawableCallbacks(@Nullable Drawable oldDrawable)
+    {
+        // Backgrounds from the group may be shared with other buttons, which may have registered themselves since
+        if (oldDrawable != null && !isContentDrawable(oldDrawable) && oldDrawable.getCallback() == this)
+            oldDrawable.setCallback(null);
+
+        if (drawable != null)
+            drawable.setCallback(this);
+
+        if (backgroundDrawable != null)
+            backgroundDrawable.setCallback(this);
+
+        if (selectedBackgroundDrawable != null)
+            selectedBackgroundDrawable.setCallback(this);
     }
 
     // endregion
@@ -1062,7 +1979,9 @@ public class SegmentedButton extends View
     void setupBackgroundClipPath()
     {
         // If there is no background radius then skip
-        if (backgroundRadius == 0)
+        // When the group clips to its outline, the corners are already rounded by the outline so the backgrounds
+        // and ripple are drawn without a clip path or bitmaps
+        if (backgroundRadius == 0 || outlineClipping)
         {
             backgroundClipPath = null;
 
@@ -1071,8 +1990,9 @@ public class SegmentedButton extends View
             return;
         }
 
-        // Set rectangle to take up entire view, used to create clip path
-        rectF.set(0, 0, getWidth(), getHeight());
+        // Clip path takes up the entire view
+        // The path is cached and only rebuilt if the size, radius or rounded corners changed since the last call
+        final float width = getWidth(), height = getHeight();
 
         // Background radius, shorthand variable to make code cleaner
         final float br = backgroundRadius;
@@ -1080,27 +2000,22 @@ public class SegmentedButton extends View
         if (isRounded() || (isLeftButton() && isRightButton()))
         {
             // Add radius on all sides, left & right
-            backgroundClipPath = new Path();
-            backgroundClipPath.addRoundRect(rectF,
-                new float[] {br, br, br, br, br, br, br, br}, Direction.CW);
+            backgroundClipPath = backgroundClipRoundRect.get(width, height, br, br, br, br);
         }
         else if (isLeftButton())
         {
             // Add radius on left side only
-            backgroundClipPath = new Path();
-            backgroundClipPath.addRoundRect(rectF, new float[] {br, br, 0, 0, 0, 0, br, br}, Direction.CW);
+            backgroundClipPath = backgroundClipRoundRect.get(width, height, br, 0, 0, br);
         }
         else if (isRightButton())
         {
             // Add radius on right side only
-            backgroundClipPath = new Path();
-            backgroundClipPath.addRoundRect(rectF, new float[] {0, 0, br, br, br, br, 0, 0}, Direction.CW);
+            backgroundClipPath = backgroundClipRoundRect.get(width, height, 0, br, br, 0);
         }
         else
         {
             // Draw consistent background clip path
-            backgroundClipPath = new Path();
-            backgroundClipPath.addRect(rectF, Direction.CW);
+            backgroundClipPath = backgroundClipRoundRect.get(width, height, 0, 0, 0, 0);
         }
 
         // Canvas.clipPath, used in onDraw for drawing the background clip path (rounding the edges for left-most and
@@ -1124,39 +2039,313 @@ public class SegmentedButton extends View
      */
     void setupBackgroundBitmaps()
     {
-        Bitmap bitmap;
+        // Note: The fingerprints are null if this is called from the View constructor, e.g. when android:background is
+        // set in the layout XML. The paints are setup once the button is sized, so there is nothing to do yet
+        if (backgroundFingerprint == null || selectedBackgroundFingerprint == null)
+            return;
+
+        // Recorded layers may reference the old paints & rasters, the rasters are only returned to the BitmapPool once
+        // the layers are recorded again with the new paints
+        invalidateLayers();
 
-        // Setup background paint object to render background using a bitmap shader approach under three conditions:
+        // Setup background paint object to render background with rounded corners under three conditions:
         //      1. Background has rounded corners
         //      2. There is a background drawable
-        //      3. Able to successfully create bitmap from drawable
-        if (backgroundClipPath != null && backgroundDrawable != null
-            && (bitmap = getBitmapFromDrawable(backgroundDrawable)) != null)
+        //      3. Able to successfully create a paint for the drawable
+        //
+        // The paint is only created again if the drawable, its size or its contents changed since the last paint
+        //
+        // If the button uses the background of the group instead, then the background is always drawn with a paint
+        // that renders the slice of the group background behind the button
+        if (backgroundDrawable == null && groupBackground != null)
         {
-            final BitmapShader backgroundBitmapShader = new BitmapShader(bitmap, TileMode.CLAMP, TileMode.CLAMP);
-
-            backgroundPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-            backgroundPaint.setShader(backgroundBitmapShader);
+            if (!backgroundFingerprint.matches(groupBackground.getDrawable(), groupBackground.getGeneration()))
+            {
+                backgroundFingerprint.retireRaster();
+                backgroundPaint = groupBackground.createPaint();
+                backgroundFingerprint.set(groupBackground.getDrawable(), groupBackground.getGeneration());
+                ++backgroundRebuildCount;
+                updateGroupBackgroundMatrix();
+            }
+        }
+        else if (backgroundClipPath != null && backgroundDrawable != null)
+        {
+            if (!backgroundFingerprint.matches(backgroundDrawable, backgroundGeneration))
+            {
+                backgroundFingerprint.retireRaster();
+                backgroundPaint = createBackgroundPaint(backgroundDrawable, backgroundFingerprint);
+                backgroundFingerprint.set(backgroundDrawable, backgroundGeneration);
+                ++backgroundRebuildCount;
+            }
         }
         else
+        {
             backgroundPaint = null;
+            backgroundFingerprint.clear();
+        }
 
-        // Setup selected background paint object to render background using a bitmap shader approach under three
-        // conditions:
+        // Setup selected background paint object to render background with rounded corners under three conditions:
         //      1. Background has rounded corners OR selected button has rounded corners
         //      2. There is a background drawable
-        //      3. Able to successfully create bitmap from drawable
-        if ((backgroundClipPath != null || selectedButtonRadius > 0) && selectedBackgroundDrawable != null
-            && (bitmap = getBitmapFromDrawable(selectedBackgroundDrawable)) != null)
+        //      3. Able to successfully create a paint for the drawable
+        //
+        // In the group indicator mode, the selected background is not drawn by the button so no paint is needed
+        if (groupIndicator)
         {
-            final BitmapShader selectedBackgroundBitmapShader = new BitmapShader(bitmap, TileMode.CLAMP,
-                TileMode.CLAMP);
-
-            selectedBackgroundPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-            selectedBackgroundPaint.setShader(selectedBackgroundBitmapShader);
+            selectedBackgroundPaint = null;
+            selectedBackgroundFingerprint.clear();
+        }
+        else if (selectedBackgroundDrawable == null && selectedGroupBackground != null)
+        {
+            if (!selectedBackgroundFingerprint.matches(selectedGroupBackground.getDrawable(),
+                selectedGroupBackground.getGeneration()))
+            {
+                selectedBackgroundFingerprint.retireRaster();
+                selectedBackgroundPaint = selectedGroupBackground.createPaint();
+                selectedBackgroundFingerprint.set(selectedGroupBackground.getDrawable(),
+                    selectedGroupBackground.getGeneration());
+                ++backgroundRebuildCount;
+                updateGroupBackgroundMatrix();
+            }
+        }
+        else if ((backgroundClipPath != null || selectedButtonRadius > 0) && selectedBackgroundDrawable != null)
+        {
+            if (!selectedBackgroundFingerprint.matches(selectedBackgroundDrawable, selectedBackgroundGeneration))
+            {
+                selectedBackgroundFingerprint.retireRaster();
+                selectedBackgroundPaint = createBackgroundPaint(selectedBackgroundDrawable,
+                    selectedBackgroundFingerprint);
+                selectedBackgroundFingerprint.set(selectedBackgroundDrawable, selectedBackgroundGeneration);
+                ++backgroundRebuildCount;
+            }
         }
         else
+        {
             selectedBackgroundPaint = null;
+            selectedBackgroundFingerprint.clear();
+        }
+    }
+
+    /**
+     * Returns the number of times a background or selected background paint was created, which may involve
+     * rasterizing the drawable to a bitmap
+     *
+     * This is meant for performance testing.
+     */
+    public int getBackgroundRebuildCount()
+    {
+        return backgroundRebuildCount;
+    }
+
+    /**
+     * Reset the count returned from getBackgroundRebuildCount to zero
+     */
+    public void resetBackgroundRebuildCount()
+    {
+        backgroundRebuildCount = 0;
+    }
+
+    /**
+     * Returns the number of times the unselected or selected layer was recorded into a render node
+     *
+     * Layers are only recorded on API 29 and above with hardware acceleration. This is meant for performance testing.
+     */
+    public int getLayerRecordCount()
+    {
+        return layerRecordCount;
+    }
+
+    /**
+     * Reset the count returned from getLayerRecordCount to zero
+     */
+    public void resetLayerRecordCount()
+    {
+        layerRecordCount = 0;
+    }
+
+    /**
+     * Mark the recorded unselected & selected layers as out of date so that they are recorded again on the next draw
+     */
+    private void invalidateLayers()
+    {
+        if (VERSION.SDK_INT >= VERSION_CODES.Q && unselectedLayer != null)
+        {
+            unselectedLayer.invalidate();
+            selectedLayer.invalidate();
+        }
+    }
+
+    /**
+     * Add the memory retained by the button to the footprint
+     *
+     * This is a package-private function used by SegmentedButtonGroup.getMemoryFootprint
+     */
+    void addMemoryFootprint(@NonNull MemoryFootprint footprint)
+    {
+        // Backgrounds are either rasterized for this button, rasterized once for the group or drawn from the bitmap
+        // of a BitmapDrawable
+        footprint.addBackgroundBitmap(backgroundFingerprint.getRaster());
+        footprint.addBackgroundBitmap(selectedBackgroundFingerprint.getRaster());
+        if (groupBackground != null)
+            footprint.addBackgroundBitmap(groupBackground.getBitmap());
+        if (selectedGroupBackground != null)
+            footprint.addBackgroundBitmap(selectedGroupBackground.getBitmap());
+        if (backgroundDrawable instanceof BitmapDrawable)
+            footprint.addBackgroundBitmap(((BitmapDrawable)backgroundDrawable).getBitmap());
+        if (selectedBackgroundDrawable instanceof BitmapDrawable)
+            footprint.addBackgroundBitmap(((BitmapDrawable)selectedBackgroundDrawable).getBitmap());
+
+        // Drawable bitmaps include vectors rasterized on API 28 and the alpha mask, which may be shared through the
+        // icon cache
+        footprint.addDrawableBitmap(drawableMask);
+        if (drawable instanceof BitmapDrawable)
+            footprint.addDrawableBitmap(((BitmapDrawable)drawable).getBitmap());
+
+        footprint.addPath(backgroundClipPath);
+        selectedButtonPath.addTo(footprint);
+        selectedButtonBorderPath.addTo(footprint);
+
+        // Layouts may be shared with other buttons through the text layout cache
+        if (hasText)
+        {
+            footprint.addTextLayout(textState.peekLayout());
+            footprint.addTextLayout(selectedTextState.peekLayout());
+        }
+
+        footprint.addRippleDrawable(rippleDrawableLollipop);
+        footprint.addRippleDrawable(rippleDrawable);
+    }
+
+    /**
+     * Create a paint object that renders the drawable when drawing a path, used to draw the background with rounded
+     * corners
+     *
+     * Solid colors are rendered directly by the paint with a color, which avoids allocating a bitmap for the drawable.
+     * All other drawables are converted to a bitmap and rendered with a bitmap shader.
+     *
+     * Returns null if a bitmap is needed but could not be created from the drawable, e.g. when the bounds are unknown
+     * because the button has not been laid out yet.
+     *
+     * @param drawable    drawable to create the paint for
+     * @param fingerprint fingerprint of the paint, stores the bitmap rasterized from the BitmapPool if there is one
+     */
+    @Nullable
+    private static Paint createBackgroundPaint(@NonNull Drawable drawable, @NonNull BackgroundFingerprint fingerprint)
+    {
+        final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+        if (setupDirectBackgroundPaint(drawable, paint))
+            return paint;
+
+        final Bitmap bitmap = getBitmapFromDrawable(drawable);
+        if (bitmap == null)
+            return null;
+
+        // Bitmap of a BitmapDrawable belongs to the drawable, every other bitmap was rasterized from the pool
+        if (!(drawable instanceof BitmapDrawable))
+            fingerprint.setRaster(bitmap);
+
+        paint.setShader(new BitmapShader(bitmap, TileMode.CLAMP, TileMode.CLAMP));
+        return paint;
+    }
+
+    /**
+     * Setup the paint to render the drawable directly with a solid color, without a bitmap
+     *
+     * This is only supported for ColorDrawable without a color filter. All other drawables, including GradientDrawable,
+     * are rasterized.
+     *
+     * @return true if the paint was setup, false if the drawable must be rasterized instead
+     */
+    static boolean setupDirectBackgroundPaint(@NonNull Drawable drawable, @NonNull Paint paint)
+    {
+        // Color filters are applied when the drawable draws itself, so the drawable must be rasterized to keep them
+        final boolean hasColorFilter = VERSION.SDK_INT >= VERSION_CODES.LOLLIPOP && drawable.getColorFilter() != null;
+
+        if (drawable instanceof ColorDrawable && !hasColorFilter)
+        {
+            // Color includes the alpha of the drawable
+            paint.setColor(((ColorDrawable)drawable).getColor());
+            return true;
+        }
+
+        // Note: GradientDrawables are always rasterized. Their colors & gradient can be read on API 24 and above, but
+        // their stroke cannot be read, so rendering them with a gradient shader would silently drop a stroke
+        return false;
+    }
+
+    /**
+     * Set whether or not the group clips its content to its rounded outline
+     *
+     * If true, then the button does not round its own corners with the background clip path since the outline of the
+     * group already does so with hardware-accelerated clipping.
+     *
+     * This is a package-private function used by SegmentedButtonGroup, it is only enabled on API 21 and above
+     */
+    void setOutlineClipping(boolean outlineClipping)
+    {
+        if (this.outlineClipping == outlineClipping)
+            return;
+
+        this.outlineClipping = outlineClipping;
+
+        setupBackgroundClipPath();
+        invalidate();
+    }
+
+    /**
+     * Set whether or not the group draws the backgrounds & selected button indicator of the button
+     *
+     * If true, then the button only draws its text, drawable & ripple. The group draws the background of the button
+     * followed by a single indicator across the buttons, so the selected background & border are not drawn by each
+     * button that the indicator overlaps.
+     *
+     * This is a package-private function used by SegmentedButtonGroup
+     */
+    void setGroupIndicator(boolean groupIndicator)
+    {
+        if (this.groupIndicator == groupIndicator)
+            return;
+
+        this.groupIndicator = groupIndicator;
+
+        // Group sizes the shared selected background to the indicator while drawing it, so restore the size of the
+        // button before the button draws it again
+        if (!groupIndicator && selectedBackgroundDrawable != null)
+            selectedBackgroundDrawable.setBounds(0, 0, getWidth(), getHeight());
+
+        setupBackgroundBitmaps();
+        invalidate();
+    }
+
+    @Override
+    public void invalidate()
+    {
+        // Content or style of the button changed, the clip changes from clipLeft & clipRight do not go through here
+        invalidateLayers();
+        invalidateView();
+    }
+
+    @Override
+    public void requestLayout()
+    {
+        super.requestLayout();
+
+        // Text & drawable may be positioned differently after the layout
+        invalidateLayers();
+    }
+
+    /**
+     * Redraw the button without recording the layers again, used when only the selected button clip changes
+     */
+    private void invalidateView()
+    {
+        super.invalidate();
+
+        // In the group indicator mode, the background & indicator are part of the drawing of the parent, so the parent
+        // must be redrawn as well whenever the button changes
+        if (groupIndicator && getParent() instanceof View)
+            ((View)getParent()).invalidate();
     }
 
     /**
@@ -1166,14 +2355,6 @@ public class SegmentedButton extends View
      */
     void setupSelectedButtonClipPath()
     {
-        // Setup selected button radii
-        // Object allocated here rather than in onDraw to increase performance
-        selectedButtonRadii = new float[] {
-            selectedButtonRadius, selectedButtonRadius, selectedButtonRadius,
-            selectedButtonRadius, selectedButtonRadius, selectedButtonRadius, selectedButtonRadius,
-            selectedButtonRadius
-        };
-
         if (selectedButtonRadius > 0)
         {
             // Canvas.clipPath, used in onDraw for drawing the selected button clip path is not supported with
@@ -1253,6 +2434,9 @@ public class SegmentedButton extends View
         {
             // Make sure to clone the drawable so that we can set the bounds on it
             backgroundDrawable = drawable.getConstantState().newDrawable();
+            backgroundDrawable.setBounds(0, 0, getWidth(), getHeight());
+            isDefaultBackground = true;
+            updateDrawableCallbacks(null);
         }
     }
 
@@ -1273,6 +2457,125 @@ public class SegmentedButton extends View
         {
             // Make sure to clone the drawable so that we can set the bounds on it
             selectedBackgroundDrawable = drawable.getConstantState().newDrawable();
+            selectedBackgroundDrawable.setBounds(0, 0, getWidth(), getHeight());
+            isDefaultSelectedBackground = true;
+            updateDrawableCallbacks(null);
+        }
+    }
+
+    /**
+     * Sets the background of the button to the background of the group, replacing the current background
+     *
+     * Unlike setBackground, the background is remembered as being passed down from the group so that it is removed
+     * in the group background mode.
+     *
+     * This is a package-private function used by SegmentedButtonGroup to pass its 'global' background down to the
+     * buttons
+     *
+     * @param drawable Drawable to set as the background
+     */
+    void setBackgroundFromGroup(@NonNull Drawable drawable)
+    {
+        setBackground(drawable);
+        isDefaultBackground = true;
+    }
+
+    /**
+     * Sets the selected background of the button to the selected background of the group, replacing the current
+     * selected background
+     *
+     * Unlike setSelectedBackground, the background is remembered as being passed down from the group so that it is
+     * removed in the group background mode.
+     *
+     * This is a package-private function used by SegmentedButtonGroup to pass its 'global' background down to the
+     * buttons
+     *
+     * @param drawable Drawable to set as the selected background
+     */
+    void setSelectedBackgroundFromGroup(@NonNull Drawable drawable)
+    {
+        setSelectedBackground(drawable);
+        isDefaultSelectedBackground = true;
+    }
+
+    /**
+     * Removes the background & selected background if they were passed down from the group
+     *
+     * In the group background mode, backgrounds on the button are drawn instead of the group backgrounds. Backgrounds
+     * that came from the group in the button mode are removed so the group backgrounds show through, backgrounds set
+     * on the button itself are kept. The paints are setup again in setGroupBackground, which must be called after.
+     *
+     * This is a package-private function used by SegmentedButtonGroup when switching to the group background mode
+     */
+    void clearDefaultBackgrounds()
+    {
+        if (isDefaultBackground)
+        {
+            final Drawable oldDrawable = backgroundDrawable;
+            backgroundDrawable = null;
+            updateDrawableCallbacks(oldDrawable);
+            isDefaultBackground = false;
+            ++backgroundGeneration;
+        }
+
+        if (isDefaultSelectedBackground)
+        {
+            final Drawable oldDrawable = selectedBackgroundDrawable;
+            selectedBackgroundDrawable = null;
+            updateDrawableCallbacks(oldDrawable);
+            isDefaultSelectedBackground = false;
+            ++selectedBackgroundGeneration;
+        }
+    }
+
+    /**
+     * Sets the backgrounds of the button to the shared backgrounds of the group, used in the group background mode
+     *
+     * If the button has its own background or selected background drawable, then that is drawn instead of the
+     * respective group background.
+     *
+     * This is a package-private function used by SegmentedButtonGroup to pass its 'global' background down to the
+     * buttons
+     *
+     * @param background         background of the group, null to not use a group background
+     * @param selectedBackground selected background of the group, null to not use a group selected background
+     */
+    void setGroupBackground(@Nullable GroupBackground background, @Nullable GroupBackground selectedBackground)
+    {
+        groupBackground = background;
+        selectedGroupBackground = selectedBackground;
+
+        // Paints must be created again from the new group backgrounds
+        backgroundFingerprint.clear();
+        selectedBackgroundFingerprint.clear();
+        setupBackgroundBitmaps();
+
+        invalidate();
+    }
+
+    /**
+     * Translate the shaders of the background paints to the position of the button within the group
+     *
+     * This only applies when a group background is used, since the group background is in the coordinates of the
+     * group rather than the button.
+     */
+    private void updateGroupBackgroundMatrix()
+    {
+        if (groupBackgroundMatrix == null)
+            groupBackgroundMatrix = new Matrix();
+
+        groupBackgroundMatrix.setTranslate(-getLeft(), -getTop());
+
+        if (backgroundDrawable == null && groupBackground != null && backgroundPaint != null
+            && backgroundPaint.getShader() != null)
+        {
+            backgroundPaint.getShader().setLocalMatrix(groupBackgroundMatrix);
+        }
+
+        if (selectedBackgroundDrawable == null && selectedGroupBackground != null && selectedBackgroundPaint != null
+            && selectedBackgroundPaint.getShader() != null)
+        {
+            selectedBackgroundPaint.getShader().setLocalMatrix(groupBackgroundMatrix);
         }
     }
 
@@ -1296,8 +2599,12 @@ public class SegmentedButton extends View
     @Override
     public void setBackground(final Drawable drawable)
     {
+        final Drawable oldDrawable = backgroundDrawable;
         backgroundDrawable = drawable;
         backgroundDrawable.setBounds(0, 0, getWidth(), getHeight());
+        updateDrawableCallbacks(oldDrawable);
+        isDefaultBackground = false;
+        ++backgroundGeneration;
 
         // Setup the background bitmaps again since background drawable has changed
         setupBackgroundBitmaps();
@@ -1321,9 +2628,13 @@ public class SegmentedButton extends View
         }
         else
         {
+            final Drawable oldDrawable = backgroundDrawable;
             backgroundDrawable = new ColorDrawable(color);
             backgroundDrawable.setBounds(0, 0, getWidth(), getHeight());
+            updateDrawableCallbacks(oldDrawable);
         }
+        isDefaultBackground = false;
+        ++backgroundGeneration;
 
         // Setup the background bitmaps again since background drawable has changed
         setupBackgroundBitmaps();
@@ -1364,8 +2675,12 @@ public class SegmentedButton extends View
      */
     public void setSelectedBackground(final Drawable drawable)
     {
+        final Drawable oldDrawable = selectedBackgroundDrawable;
         selectedBackgroundDrawable = drawable;
         selectedBackgroundDrawable.setBounds(0, 0, getWidth(), getHeight());
+        updateDrawableCallbacks(oldDrawable);
+        isDefaultSelectedBackground = false;
+        ++selectedBackgroundGeneration;
 
         // Setup the background bitmaps again since background drawable has changed
         setupBackgroundBitmaps();
@@ -1389,9 +2704,13 @@ public class SegmentedButton extends View
         }
         else
         {
+            final Drawable oldDrawable = selectedBackgroundDrawable;
             selectedBackgroundDrawable = new ColorDrawable(color);
             selectedBackgroundDrawable.setBounds(0, 0, getWidth(), getHeight());
+            updateDrawableCallbacks(oldDrawable);
         }
+        isDefaultSelectedBackground = false;
+        ++selectedBackgroundGeneration;
 
         // Setup the background bitmaps again since background drawable has changed
         setupBackgroundBitmaps();
@@ -1500,15 +2819,207 @@ public class SegmentedButton extends View
      */
     public void setDrawable(final @Nullable Drawable drawable)
     {
-        this.drawable = drawable;
+        // Discard any drawable that is currently being loaded asynchronously
+        pendingDrawableToken = null;
 
-        // Request a layout, drawable may have different size and things need to be rearranged
-        requestLayout();
+        applyDrawable(drawable, 0, null);
+    }
 
-        // Calculate new positions and bounds for text & drawable
-        // This may be redundant if the case that onSizeChanged gets called but there are cases where the size doesnt
-        // change but the positions still need to be recalculated
-        updateSize();
+    /**
+     * Set the drawable for the button from a drawable resource, loading the drawable on a background thread
+     *
+     * The drawable is loaded on the given executor and rasterized at its displayed size if required (e.g. as an
+     * alpha mask in the alpha mask drawable mode). Once finished, the drawable is applied on the UI thread with a
+     * single invalidate, or a layout pass if the size of the button changes.
+     *
+     * Until the drawable is loaded, the placeholder is displayed. If the placeholder is null, then the previous
+     * drawable continues to be displayed. If the drawable fails to load, then the placeholder is kept.
+     *
+     * If setDrawable or setDrawableAsync is called again before the drawable is applied, then this drawable is
+     * discarded.
+     *
+     * @param drawableResId drawable resource ID to load, e.g. R.drawable.my_icon
+     * @param executor      executor to load the drawable on, e.g. AsyncTask.THREAD_POOL_EXECUTOR
+     * @param placeholder   drawable to display until the drawable is loaded, null to keep the current drawable
+     */
+    public void setDrawableAsync(final @DrawableRes int drawableResId, final @NonNull Executor executor,
+        final @Nullable Drawable placeholder)
+    {
+        loadDrawableAsync((context, width, height, masked) ->
+            readCompatDrawable(context, drawableResId, width, height, masked), drawableResId, executor, placeholder);
+    }
+
+    /**
+     * Set the drawable for the button from a content, file or android.resource URI, decoding the image on a
+     * background thread
+     *
+     * The image is decoded on the given executor, downsampled to the size of the drawable if a drawable width or
+     * height is set. Once finished, the drawable is applied on the UI thread with a single invalidate, or a layout
+     * pass if the size of the button changes.
+     *
+     * Until the drawable is loaded, the placeholder is displayed. If the placeholder is null, then the previous
+     * drawable continues to be displayed. If the image fails to decode, then the placeholder is kept.
+     *
+     * If setDrawable or setDrawableAsync is called again before the drawable is applied, then this drawable is
+     * discarded.
+     *
+     * @param uri         URI of the image to decode
+     * @param executor    executor to decode the image on, e.g. AsyncTask.THREAD_POOL_EXECUTOR
+     * @param placeholder drawable to display until the drawable is loaded, null to keep the current drawable
+     */
+    public void setDrawableAsync(final @NonNull Uri uri, final @NonNull Executor executor,
+        final @Nullable Drawable placeholder)
+    {
+        loadDrawableAsync((context, width, height, masked) -> decodeBitmapDrawable(context, () -> {
+            final InputStream stream = context.getContentResolver().openInputStream(uri);
+            if (stream == null)
+                throw new FileNotFoundException("Unable to open " + uri);
+
+            return stream;
+        }, width, height), 0, executor, placeholder);
+    }
+
+    /**
+     * Set the drawable for the button from an image file, decoding the image on a background thread
+     *
+     * The image is decoded on the given executor, downsampled to the size of the drawable if a drawable width or
+     * height is set. Once finished, the drawable is applied on the UI thread with a single invalidate, or a layout
+     * pass if the size of the button changes.
+     *
+     * Until the drawable is loaded, the placeholder is displayed. If the placeholder is null, then the previous
+     * drawable continues to be displayed. If the image fails to decode, then the placeholder is kept.
+     *
+     * If setDrawable or setDrawableAsync is called again before the drawable is applied, then this drawable is
+     * discarded.
+     *
+     * @param path        absolute path of the image file to decode
+     * @param executor    executor to decode the image on, e.g. AsyncTask.THREAD_POOL_EXECUTOR
+     * @param placeholder drawable to display until the drawable is loaded, null to keep the current drawable
+     */
+    public void setDrawableAsync(final @NonNull String path, final @NonNull Executor executor,
+        final @Nullable Drawable placeholder)
+    {
+        loadDrawableAsync((context, width, height, masked) -> decodeBitmapDrawable(context,
+            () -> new FileInputStream(path), width, height), 0, executor, placeholder);
+    }
+
+    /**
+     * Load a drawable on the executor and apply it to the button on the UI thread
+     *
+     * If the drawable fails to load, then the failure is logged and the button keeps displaying the placeholder, or the
+     * previous drawable if there is no placeholder.
+     *
+     * @param loader        loads the drawable with a snapshot of the drawable size & mode, called on the executor
+     * @param drawableResId resource ID the drawable is loaded from, 0 if it is not loaded from a resource
+     * @param executor      executor to load the drawable on
+     * @param placeholder   drawable to display until the drawable is loaded, null to keep the current drawable
+     */
+    private void loadDrawableAsync(final DrawableLoader loader, final int drawableResId,
+        final @NonNull Executor executor, final @Nullable Drawable placeholder)
+    {
+        if (placeholder != null)
+            setDrawable(placeholder);
+
+        // Take a snapshot of the drawable size & mode since these values should not be accessed off the UI thread
+        final Object token = new Object();
+        final Context context = getContext();
+        final int width = hasDrawableWidth ? drawableWidth : -1;
+        final int height = hasDrawableHeight ? drawableHeight : -1;
+        final boolean masked = isDrawableMasked();
+
+        pendingDrawableToken = token;
+
+        executor.execute(() -> {
+            Drawable loadedDrawable;
+            try
+            {
+                loadedDrawable = loader.load(context, width, height, masked);
+
+                if (loadedDrawable == null)
+                    Log.w(TAG, "Unable to load drawable, loader returned null");
+            }
+            catch (Exception e)
+            {
+                Log.w(TAG, "Unable to load drawable", e);
+                loadedDrawable = null;
+            }
+
+            // Drawable could not be loaded, keep the current drawable (i.e. the placeholder or previous drawable)
+            // This load is no longer pending, so a later setDrawableAsync is not affected by it
+            if (loadedDrawable == null)
+            {
+                mainHandler.post(() -> {
+                    if (pendingDrawableToken == token)
+                        pendingDrawableToken = null;
+                });
+                return;
+            }
+
+            final Drawable newDrawable = loadedDrawable;
+
+            // Rasterize the alpha mask ahead of time at the displayed size, this is only possible if the size is known
+            Bitmap mask = null;
+            final int maskWidth = width != -1 ? width : newDrawable.getIntrinsicWidth();
+            final int maskHeight = height != -1 ? height : newDrawable.getIntrinsicHeight();
+            if (masked && maskWidth > 0 && maskHeight > 0)
+            {
+                mask = drawableResId != 0 ? IconCache.get(context, drawableResId, maskWidth, maskHeight, true)
+                    : null;
+
+                if (mask == null)
+                {
+                    mask = createDrawableMask(newDrawable, maskWidth, maskHeight);
+
+                    if (drawableResId != 0)
+                        IconCache.put(context, drawableResId, maskWidth, maskHeight, true, mask);
+                }
+            }
+
+            final Bitmap newDrawableMask = mask;
+            mainHandler.post(() -> {
+                // Drawable was replaced while it was being loaded, discard it
+                if (pendingDrawableToken != token)
+                    return;
+
+                pendingDrawableToken = null;
+
+                // Drawable size or mode was changed while the drawable was being loaded, so the rasterized bitmaps
+                // may no longer be valid. The mask is recreated when the drawable bounds are updated, and resource
+                // drawables are loaded again synchronously, which is typically a hit in the icon cache
+                final int currentWidth = hasDrawableWidth ? drawableWidth : -1;
+                final int currentHeight = hasDrawableHeight ? drawableHeight : -1;
+                if (width != currentWidth || height != currentHeight || masked != isDrawableMasked())
+                {
+                    applyDrawable(drawableResId != 0 ? readCompatDrawable(getContext(), drawableResId) : newDrawable,
+                        drawableResId, null);
+                    return;
+                }
+
+                applyDrawable(newDrawable, drawableResId, newDrawableMask);
+            });
+        });
+    }
+
+    /**
+     * Replace the drawable of the button, only requesting a layout if the size of the button changes
+     *
+     * @param drawable      new drawable, null to remove the drawable
+     * @param drawableResId resource ID the drawable was loaded from, 0 if the drawable was set directly
+     * @param drawableMask  alpha mask of the drawable if it was already rasterized, otherwise null
+     */
+    private void applyDrawable(final @Nullable Drawable drawable, final int drawableResId,
+        final @Nullable Bitmap drawableMask)
+    {
+        final int oldDesiredWidth = desiredWidth;
+        final Drawable oldDrawable = this.drawable;
+        this.drawable = drawable;
+        this.drawableResId = drawableResId;
+        this.drawableMask = drawableMask;
+        updateDrawableCallbacks(oldDrawable);
+        measureCache.clear();
+
+        // Drawable may have a different size, only request a layout if the size of the button changes
+        refreshContentLayout(oldDesiredWidth);
     }
 
     /**
@@ -1533,6 +3044,7 @@ public class SegmentedButton extends View
     public void setDrawablePadding(final int padding)
     {
         drawablePadding = padding;
+        measureCache.clear();
 
         requestLayout();
 
@@ -1574,6 +3086,8 @@ public class SegmentedButton extends View
 
         // Create color filter for the tint color
         drawableColorFilter = new PorterDuffColorFilter(tint, PorterDuff.Mode.SRC_IN);
+        drawableMaskPaint.setColor(tint);
+        setupDrawableTint();
 
         invalidate();
     }
@@ -1585,6 +3099,7 @@ public class SegmentedButton extends View
     {
         hasDrawableTint = false;
         drawableColorFilter = null;
+        setupDrawableTint();
 
         invalidate();
     }
@@ -1621,6 +3136,8 @@ public class SegmentedButton extends View
 
         // Create color filter for the tint color
         selectedDrawableColorFilter = new PorterDuffColorFilter(tint, PorterDuff.Mode.SRC_IN);
+        selectedDrawableMaskPaint.setColor(tint);
+        setupTintedDrawables();
 
         invalidate();
     }
@@ -1632,6 +3149,7 @@ public class SegmentedButton extends View
     {
         hasSelectedDrawableTint = false;
         selectedDrawableColorFilter = null;
+        setupTintedDrawables();
 
         invalidate();
     }
@@ -1666,6 +3184,8 @@ public class SegmentedButton extends View
     {
         hasDrawableWidth = (width != -1);
         drawableWidth = width;
+        measureCache.clear();
+        reloadRasterizedDrawable();
 
         // Request relayout because the drawable width is different now
         requestLayout();
@@ -1706,6 +3226,8 @@ public class SegmentedButton extends View
     {
         hasDrawableHeight = (height != -1);
         drawableHeight = height;
+        measureCache.clear();
+        reloadRasterizedDrawable();
 
         // Request relayout because the drawable width is different now
         requestLayout();
@@ -1743,6 +3265,7 @@ public class SegmentedButton extends View
     public void setDrawableGravity(final @GravityOptions int gravity)
     {
         drawableGravity = gravity;
+        measureCache.clear();
 
         // Request relayout because the drawable width is different now
         requestLayout();
@@ -1753,6 +3276,32 @@ public class SegmentedButton extends View
         updateSize();
     }
 
+    /**
+     * Returns how the drawable is stored & drawn, one of the DRAWABLE_MODE_* values
+     */
+    public int getDrawableMode()
+    {
+        return drawableMode;
+    }
+
+    /**
+     * Set how the drawable is stored & drawn
+     *
+     * In DRAWABLE_MODE_ALPHA_MASK, a tinted drawable is stored as an ALPHA_8 mask at its displayed size and drawn with
+     * the tint color. This uses a quarter of the memory of a full color bitmap and no color filter is swapped on the
+     * drawable while drawing. Only use this mode for monochrome icons since the colors of the drawable are ignored.
+     * If the drawable has no tint color, then it is drawn normally.
+     *
+     * @param mode one of the DRAWABLE_MODE_* values
+     */
+    public void setDrawableMode(final @DrawableMode int mode)
+    {
+        drawableMode = mode;
+        setupDrawableTint();
+
+        invalidate();
+    }
+
     /**
      * Return the text currently being displayed
      *
@@ -1772,16 +3321,108 @@ public class SegmentedButton extends View
      */
     public void setText(final @Nullable String text)
     {
+        // Discard any text that is currently being prepared asynchronously
+        pendingTextToken = null;
+
+        final int oldDesiredWidth = desiredWidth;
         this.hasText = (text != null && !text.isEmpty());
         this.text = text;
 
         initText();
-        requestLayout();
 
-        // Calculate new positions and bounds for text & drawable
-        // This may be redundant in the case that onSizeChanged gets called but there are cases where the size doesnt
-        // change but the positions still need to be recalculated
-        updateSize();
+        // Only request a layout if the size of the button changes
+        refreshContentLayout(oldDesiredWidth);
+    }
+
+    /**
+     * Set the text to a new string, shaping and measuring the text on a background thread
+     *
+     * The text is precomputed and laid out on the given executor. Once finished, the text is applied on the UI thread
+     * with a single layout pass. Until then, the previous text continues to be displayed and is returned from getText.
+     *
+     * This is useful for long or complex text (e.g. CJK or Arabic text and custom fonts) where shaping the text
+     * synchronously in setText would cause jank, especially when setting the text for many buttons at once.
+     *
+     * If setText or setTextAsync is called again before the text is applied, then this text is discarded. If the
+     * text style is changed before the text is applied, then the text is applied synchronously with the new style.
+     *
+     * If the string is null or an empty string, then the text will be hidden immediately
+     *
+     * @param text     new string to set text to in the button
+     * @param executor executor to run the text measurement on, e.g. AsyncTask.THREAD_POOL_EXECUTOR
+     */
+    public void setTextAsync(final @Nullable String text, final @NonNull Executor executor)
+    {
+        // Nothing to measure for empty text, just hide it immediately
+        if (text == null || text.isEmpty())
+        {
+            setText(text);
+            return;
+        }
+
+        // Take a snapshot of the text style since these values should not be accessed off the UI thread
+        final Object token = new Object();
+        final int styleGeneration = textStyleGeneration;
+        final float textSize = appliedTextSize;
+        final int textColor = this.textColor;
+        final int selectedTextColor = hasSelectedTextColor ? this.selectedTextColor : this.textColor;
+        final Typeface textTypeface = this.textTypeface;
+        final Typeface selectedTextTypeface = this.selectedTextTypeface;
+        final int linesCount = this.linesCount;
+        final TextUtils.TruncateAt ellipsize = this.ellipsize;
+        final TextLayoutProfile textLayoutProfile = this.textLayoutProfile;
+
+        pendingTextToken = token;
+
+        executor.execute(() -> {
+            // Create the paint & layouts for the unselected and selected text
+            // The text is measured and the layout for the text on one line is created and stored in the text layout
+            // cache. When the button is measured, the layout will be retrieved from the cache if there is enough space
+            // for the text on one line
+            // On Android P and above, the text is shaped and measured once via PrecomputedText and any static layouts
+            // are built from it, so the text is not measured again when the text wraps at a narrower width
+            final TextLayoutState newTextState = createTextState(text, textSize, textColor, textTypeface, linesCount,
+                ellipsize, textLayoutProfile, true);
+            final TextLayoutState newSelectedTextState = createSelectedTextState(text, textSize, selectedTextColor,
+                selectedTextTypeface, linesCount, ellipsize, textLayoutProfile, true, newTextState);
+            newTextState.getLayout();
+            newSelectedTextState.getLayout();
+
+            mainHandler.post(() -> {
+                // Text was replaced while it was being prepared, discard it
+                if (pendingTextToken != token)
+                    return;
+
+                // Style was changed while text was being prepared, so the measurements are no longer valid
+                // Fallback to setting the text synchronously
+                if (textStyleGeneration != styleGeneration)
+                {
+                    setText(text);
+                    return;
+                }
+
+                pendingTextToken = null;
+
+                final int oldDesiredWidth = desiredWidth;
+                measureCache.clear();
+                hasText = true;
+                SegmentedButton.this.text = text;
+                textState = newTextState;
+                selectedTextState = newSelectedTextState;
+
+                // Text color may have changed while the text was being prepared, this does not affect the measurements
+                updateTextStateColors();
+
+                // Text size will be fit to the new text when measured
+                if (textAutoSizer != null)
+                {
+                    textAutoSizer.setText(text, textTypeface, selectedTextTypeface, linesCount, textLayoutProfile);
+                }
+
+                // Only request a layout if the size of the button changes
+                refreshContentLayout(oldDesiredWidth);
+            });
+        });
     }
 
     /**
@@ -1801,7 +3442,7 @@ public class SegmentedButton extends View
     {
         textColor = color;
 
-        invalidate();
+        refreshTextColor();
     }
 
     /**
@@ -1834,7 +3475,7 @@ public class SegmentedButton extends View
         hasSelectedTextColor = true;
         selectedTextColor = color;
 
-        invalidate();
+        refreshTextColor();
     }
 
     /**
@@ -1846,7 +3487,7 @@ public class SegmentedButton extends View
     {
         hasSelectedTextColor = false;
 
-        invalidate();
+        refreshTextColor();
     }
 
     /**
@@ -1860,6 +3501,8 @@ public class SegmentedButton extends View
     /**
      * Set the size of the text in pixels
      *
+     * Note: This is ignored while the text is auto-sized, see setAutoSizeText
+     *
      * @param size new size in pixels of the text
      */
     public void setTextSize(final float size)
@@ -1868,8 +3511,6 @@ public class SegmentedButton extends View
         if (!hasText)
             return;
 
-        textPaint.setTextSize(size);
-
         initText();
         requestLayout();
 
@@ -1879,6 +3520,96 @@ public class SegmentedButton extends View
         updateSize();
     }
 
+    /**
+     * Whether or not the text size is automatically fit to the width of the button
+     */
+    public boolean isAutoSizeText()
+    {
+        return textAutoSizer != null;
+    }
+
+    /**
+     * Returns the minimum text size in pixels when auto-sizing, or -1 if auto-sizing is disabled
+     */
+    public float getAutoSizeMinTextSize()
+    {
+        return textAutoSizer != null ? textAutoSizer.getMinTextSize() : -1.0f;
+    }
+
+    /**
+     * Returns the maximum text size in pixels when auto-sizing, or -1 if auto-sizing is disabled
+     */
+    public float getAutoSizeMaxTextSize()
+    {
+        return textAutoSizer != null ? textAutoSizer.getMaxTextSize() : -1.0f;
+    }
+
+    /**
+     * Enable auto-sizing of the text to fit the width of the button
+     *
+     * The largest text size between the min & max text size, in steps of the step granularity, is used such that the
+     * text fits on one line or wraps onto no more than the lines count without breaking any words. If the text does
+     * not fit at the min text size, then the min text size is used and the text is wrapped or ellipsized as normal.
+     *
+     * While auto-sizing, the text size set via setTextSize is ignored.
+     *
+     * @param minTextSize     minimum text size in pixels
+     * @param maxTextSize     maximum text size in pixels
+     * @param stepGranularity step between the text sizes that are tried, in pixels
+     * @throws IllegalArgumentException if the sizes or step are not positive or the max size is less than the min
+     */
+    public void setAutoSizeText(final float minTextSize, final float maxTextSize, final float stepGranularity)
+    {
+        textAutoSizer = new TextAutoSizer(minTextSize, maxTextSize, stepGranularity);
+        refreshTextLayout();
+    }
+
+    /**
+     * Disable auto-sizing of the text, the text size set via setTextSize will be used
+     */
+    public void disableAutoSizeText()
+    {
+        if (textAutoSizer == null)
+            return;
+
+        textAutoSizer = null;
+        refreshTextLayout();
+    }
+
+    /**
+     * Returns the text size, in pixels, that fits the width of the button from the last measure
+     *
+     * This is used by SegmentedButtonGroup to find a shared text size for all buttons. If there is no text, then any
+     * size fits, so the max float value is returned
+     */
+    float getAutoSizeFittedTextSize()
+    {
+        return hasText ? autoSizeFittedTextSize : Float.MAX_VALUE;
+    }
+
+    /**
+     * Returns the text size, in pixels, currently used for the text
+     */
+    float getAppliedTextSize()
+    {
+        return appliedTextSize;
+    }
+
+    /**
+     * Set the largest text size, in pixels, allowed when auto-sizing
+     *
+     * This is a package-private function used by SegmentedButtonGroup to share the same text size between all buttons.
+     * The new limit is applied the next time the button is measured.
+     */
+    void setAutoSizeTextSizeLimit(float limit)
+    {
+        if (autoSizeTextSizeLimit == limit)
+            return;
+
+        autoSizeTextSizeLimit = limit;
+        measureCache.clear();
+    }
+
     /**
      * Return the current typeface used for drawing text
      */
@@ -1890,12 +3621,15 @@ public class SegmentedButton extends View
     /**
      * Set a new typeface to use for drawing text
      *
+     * If the font family from the layout XML is still loading, then it is discarded and will not replace this typeface
+     *
      * @param typeface new typeface for text
      */
     public void setTextTypeface(final Typeface typeface)
     {
         textTypeface = typeface;
-        refreshTypeface();
+        pendingFontListener = null;
+        refreshTextLayout();
     }
 
     /**
@@ -1909,15 +3643,100 @@ public class SegmentedButton extends View
     /**
      * Set a new typeface to use for drawing text when the button is selected
      *
+     * If the font family from the layout XML is still loading, then it is discarded and will not replace this typeface
+     *
      * @param typeface new typeface for selected text
      */
     public void setSelectedTextTypeface(final Typeface typeface)
     {
         selectedTextTypeface = typeface;
-        refreshTypeface();
+        pendingFontListener = null;
+        refreshTextLayout();
+    }
+
+    /**
+     * Return the text layout profile used for laying out the text
+     *
+     * The profile determines the line breaking strategy, hyphenation frequency, font padding and justification mode
+     * of the text.
+     */
+    public TextLayoutProfile getTextLayoutProfile()
+    {
+        return textLayoutProfile;
+    }
+
+    /**
+     * Set the text layout profile used for laying out the text
+     *
+     * The FAST profile is used by default when the lines count is 1, which is the cheapest to layout and is suitable
+     * for single-line labels. Otherwise, the HIGH_QUALITY profile is used by default since the line breaks are
+     * noticeable for multi-line text.
+     *
+     * @param profile new text layout profile, one of the predefined profiles in TextLayoutProfile or a custom profile
+     */
+    public void setTextLayoutProfile(final @NonNull TextLayoutProfile profile)
+    {
+        hasTextLayoutProfile = true;
+        textLayoutProfile = profile;
+        refreshTextLayout();
+    }
+
+    /**
+     * Sets the text layout profile of the button if it does not have a profile already
+     *
+     * If a profile was specified for the button, then the profile is not changed
+     *
+     * This is a package-private function used by SegmentedButtonGroup to pass its 'global' text layout profile down to
+     * the buttons
+     *
+     * @param profile text layout profile to set for the button
+     */
+    void setDefaultTextLayoutProfile(@NonNull TextLayoutProfile profile)
+    {
+        if (hasTextLayoutProfile || textLayoutProfile.equals(profile))
+            return;
+
+        textLayoutProfile = profile;
+        refreshTextLayout();
+    }
+
+    /**
+     * Redraw the text after the text color changes
+     *
+     * The color is part of the shared text paints & layouts, but it does not change the shape of the text. Thus, the
+     * text states are swapped for ones in the new color with the same measurements. The MeasureCache, text positions &
+     * any pending asynchronous text remain valid and only the button needs to be redrawn.
+     */
+    private void refreshTextColor()
+    {
+        // Nothing to do if there is no text, colors will be used once the text is set
+        if (!hasText)
+            return;
+
+        updateTextStateColors();
+        invalidate();
+    }
+
+    /**
+     * Swap the unselected & selected text states for ones with the current text colors
+     *
+     * The selected state shares the unselected state when both have the same typeface & color. The measurements of
+     * the states do not change, so the text does not need to be measured again.
+     */
+    private void updateTextStateColors()
+    {
+        final int selectedColor = hasSelectedTextColor ? selectedTextColor : textColor;
+
+        textState = textState.withColor(textColor);
+
+        final boolean sameTypeface = selectedTextState.getPaint().getTypeface() == textState.getPaint().getTypeface();
+        if (selectedColor == textColor && sameTypeface)
+            selectedTextState = textState;
+        else
+            selectedTextState = selectedTextState.withColor(selectedColor);
     }
 
-    private void refreshTypeface() {
+    private void refreshTextLayout() {
         initText();
         requestLayout();
 
@@ -1949,14 +3768,26 @@ public class SegmentedButton extends View
      * @param vectorDrawable vector drawable to convert to a bitmap
      */
     public static Bitmap getBitmapFromVectorDrawable(Drawable vectorDrawable)
+    {
+        return getBitmapFromVectorDrawable(vectorDrawable, vectorDrawable.getIntrinsicWidth(),
+            vectorDrawable.getIntrinsicHeight());
+    }
+
+    /**
+     * Create a bitmap of the given size from a specified vector drawable
+     *
+     * @param vectorDrawable vector drawable to convert to a bitmap
+     * @param width          width of the bitmap in pixels
+     * @param height         height of the bitmap in pixels
+     */
+    public static Bitmap getBitmapFromVectorDrawable(Drawable vectorDrawable, int width, int height)
     {
         if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP)
         {
             vectorDrawable = (DrawableCompat.wrap(vectorDrawable)).mutate();
         }
 
-        Bitmap bitmap = Bitmap.createBitmap(vectorDrawable.getIntrinsicWidth(),
-            vectorDrawable.getIntrinsicHeight(), Bitmap.Config.ARGB_8888);
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
         Canvas canvas = new Canvas(bitmap);
         vectorDrawable.setBounds(0, 0, canvas.getWidth(), canvas.getHeight());
         vectorDrawable.draw(canvas);
@@ -1989,7 +3820,7 @@ public class SegmentedButton extends View
                 // Create a bitmap of fixed size for ColorDrawable since it inherently has no size
                 // Ideally, this size can be small because the bitmap can be stretched to fit any width/height
                 // without loss of quality
-                bitmap = Bitmap.createBitmap(COLORDRAWABLE_SIZE, COLORDRAWABLE_SIZE, BITMAP_CONFIG);
+                bitmap = BitmapPool.get(COLORDRAWABLE_SIZE, COLORDRAWABLE_SIZE, BITMAP_CONFIG);
             }
             else if (drawable instanceof GradientDrawable)
             {
@@ -2001,15 +3832,14 @@ public class SegmentedButton extends View
                 final Rect bounds = drawable.getBounds();
 
                 if (bounds.width() > 0 && bounds.height() > 0)
-                    bitmap = Bitmap.createBitmap(bounds.width(), bounds.height(), BITMAP_CONFIG);
+                    bitmap = BitmapPool.get(bounds.width(), bounds.height(), BITMAP_CONFIG);
                 else
                     return null;
             }
             else
             {
                 // Otherwise, create bitmap based on intrinsic size of the drawable
-                bitmap = Bitmap.createBitmap(drawable.getIntrinsicWidth(), drawable.getIntrinsicHeight(),
-                    BITMAP_CONFIG);
+                bitmap = BitmapPool.get(drawable.getIntrinsicWidth(), drawable.getIntrinsicHeight(), BITMAP_CONFIG);
             }
 
             // Create canvas using bitmap
@@ -2032,6 +3862,65 @@ public class SegmentedButton extends View
         }
     }
 
+    /**
+     * Decode a bitmap from a stream into a drawable, downsampling the bitmap to the size it is displayed at
+     *
+     * The bitmap is downsampled by the largest power of two that keeps it at least as large as the requested size, so
+     * that large images do not use more memory than necessary.
+     *
+     * @param context   context used for the resources of the drawable
+     * @param opener    opens a new stream for the image, this is called twice if the bitmap is downsampled
+     * @param reqWidth  width the bitmap is displayed at, -1 if unknown
+     * @param reqHeight height the bitmap is displayed at, -1 if unknown
+     * @return drawable for the decoded bitmap
+     * @throws IOException if the image cannot be opened or decoded
+     */
+    private static Drawable decodeBitmapDrawable(Context context, StreamOpener opener, int reqWidth, int reqHeight)
+        throws IOException
+    {
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+
+        if (reqWidth > 0 || reqHeight > 0)
+        {
+            // Decode the size of the image only to determine the sample size
+            options.inJustDecodeBounds = true;
+            InputStream stream = opener.open();
+            try
+            {
+                BitmapFactory.decodeStream(stream, null, options);
+            }
+            finally
+            {
+                stream.close();
+            }
+            options.inJustDecodeBounds = false;
+
+            // Halve the size until the next halving would make the image smaller than the requested size
+            int sampleSize = 1;
+            while ((reqWidth <= 0 || options.outWidth / (sampleSize * 2) >= reqWidth)
+                && (reqHeight <= 0 || options.outHeight / (sampleSize * 2) >= reqHeight))
+                sampleSize *= 2;
+
+            options.inSampleSize = sampleSize;
+        }
+
+        final Bitmap bitmap;
+        final InputStream stream = opener.open();
+        try
+        {
+            bitmap = BitmapFactory.decodeStream(stream, null, options);
+        }
+        finally
+        {
+            stream.close();
+        }
+
+        if (bitmap == null)
+            throw new IOException("Unable to decode image for SegmentedButton drawable");
+
+        return new BitmapDrawable(context.getResources(), bitmap);
+    }
+
     private TextUtils.TruncateAt resolveEllipsizeType(int index) {
         switch (index) {
             case 1:
@@ -2062,4 +3951,25 @@ public class SegmentedButton extends View
     }
 
     // endregion
+
+    /**
+     * Loads a drawable for setDrawableAsync, called on a background thread
+     *
+     * The context, drawable width, height & whether the drawable is masked are a snapshot taken on the UI thread, the
+     * width & height are -1 if they are not set.
+     */
+    private interface DrawableLoader
+    {
+        @Nullable
+        Drawable load(Context context, int width, int height, boolean masked) throws IOException;
+    }
+
+    /**
+     * Opens a new stream to an image for setDrawableAsync, called on a background thread
+     */
+    private interface StreamOpener
+    {
+        @NonNull
+        InputStream open() throws IOException;
+    }
 }
@@ -7,8 +7,14 @@ import android.annotation.SuppressLint;
 import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.DashPathEffect;
 import android.graphics.Outline;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.GradientDrawable;
@@ -37,6 +43,7 @@ import android.widget.FrameLayout;
 import android.widget.LinearLayout;
 import androidx.annotation.ColorInt;
 import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 import androidx.core.content.ContextCompat;
@@ -80,6 +87,31 @@ public class SegmentedButtonGroup extends LinearLayout
     })
     public @interface AnimationInterpolator {}
 
+    // Background modes that determine how the background & selected background of the group are drawn
+    // In the button mode, each button draws its own copy of the background. In the group mode, the background covers
+    // the entire group and each button draws the slice of the background behind it
+    public final static int BACKGROUND_MODE_BUTTON = 0;
+    public final static int BACKGROUND_MODE_GROUP = 1;
+
+    // Interface defined for linting purposes to ensure that a background mode value (integer type) is one of the
+    // valid values
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({BACKGROUND_MODE_BUTTON, BACKGROUND_MODE_GROUP})
+    public @interface BackgroundMode {}
+
+    // Indicator modes that determine how the selected button indicator is drawn
+    // In the button mode, each button that the indicator overlaps draws its own clipped copy of the selected
+    // background & border. In the group mode, the group draws the indicator once across the buttons and the buttons
+    // only draw their selected text & drawable within the clip
+    public final static int INDICATOR_MODE_BUTTON = 0;
+    public final static int INDICATOR_MODE_GROUP = 1;
+
+    // Interface defined for linting purposes to ensure that an indicator mode value (integer type) is one of the
+    // valid values
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({INDICATOR_MODE_BUTTON, INDICATOR_MODE_GROUP})
+    public @interface IndicatorMode {}
+
     // This ViewGroup consists of a FrameLayout as it's child which contains three items:
     //     1. Button LinearLayout that contains the SegmentedButtons
     //     2. Divider LinearLayout that contains the dividers between buttons
@@ -105,6 +137,30 @@ public class SegmentedButtonGroup extends LinearLayout
     private Drawable backgroundDrawable;
     // Drawable for the background when selected, this will be a ColorDrawable in case a solid color is given
     private Drawable selectedBackgroundDrawable;
+    // Determines how the background & selected background are drawn, can be one of BackgroundMode types (default is
+    // button)
+    private int backgroundMode;
+    // Backgrounds shared by all buttons in the group background mode, null if there is no respective background or
+    // the button background mode is used
+    private GroupBackground groupBackground, selectedGroupBackground;
+    // Backgrounds that were replaced, their rasters are returned to the BitmapPool once the buttons have been drawn
+    // with the new backgrounds
+    private final ArrayList<GroupBackground> retiredGroupBackgrounds = new ArrayList<>();
+    // Determines how the selected button indicator is drawn, can be one of IndicatorMode types (default is button)
+    private int indicatorMode;
+
+    // Objects used for drawing the indicator in the group indicator mode
+    // The rectangle is in the coordinates of the button layout, the paths are cached at the origin for each button
+    // width and scaled to the width of the indicator while animating between buttons
+    private final RectF indicatorRect = new RectF();
+    // Width of the button nearest in size to the indicator, see calculateIndicatorRect
+    private float indicatorBaseWidth;
+    private final RoundRectPath indicatorPath = new RoundRectPath();
+    private final RoundRectPath indicatorBorderPath = new RoundRectPath();
+    private final RoundRectPath indicatorClipPath = new RoundRectPath();
+    private final Paint indicatorPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    // Paint for the border around the indicator, null if there is no selected border
+    private Paint indicatorBorderPaint;
 
     // Width of the border in pixels (default value is 0px for no border)
     private int borderWidth;
@@ -126,6 +182,9 @@ public class SegmentedButtonGroup extends LinearLayout
     private int radius;
     // Radius for rounding edges of the selected button, in pixels (default value is 0)
     private int selectedButtonRadius;
+    // Whether or not the content of the group is clipped to its rounded outline on API 21 and above instead of each
+    // button rounding its own corners (default value is false)
+    private boolean outlineClipping;
 
     // Position of the currently selected button, zero-indexed (default value is 0)
     // When animating, the position will be the previous value until after animation is finished
@@ -148,6 +207,16 @@ public class SegmentedButtonGroup extends LinearLayout
     // Color of the ripple to display over the buttons (default value is gray)
     private int rippleColor;
 
+    // Whether or not a text layout profile was specified
+    private boolean hasTextLayoutProfile;
+    // Text layout profile passed to buttons that do not have their own profile
+    // Null if not specified, in which case each button uses its own default profile based on its lines count
+    private TextLayoutProfile textLayoutProfile;
+
+    // Whether or not all auto-sized buttons share the same text size, the smallest size that fits all of them
+    // (default is false)
+    private boolean uniformAutoSizeText;
+
     // Animation interpolator for animating button movement
     // Android has some standard interpolator, e.g. BounceInterpolator, but also easy to create custom interpolator
     private Interpolator selectionAnimationInterpolator;
@@ -231,12 +300,18 @@ public class SegmentedButtonGroup extends LinearLayout
             LayoutParams.MATCH_PARENT));
 
         // Layout that contains all SegmentedButton's
-        buttonLayout = new LinearLayout(getContext());
+        // The layout draws the backgrounds & selected button indicator underneath the buttons in the group indicator
+        // mode
+        buttonLayout = new ButtonLayout(getContext());
         buttonLayout.setLayoutParams(new FrameLayout.LayoutParams(LayoutParams.MATCH_PARENT,
             LayoutParams.WRAP_CONTENT));
         buttonLayout.setOrientation(LinearLayout.HORIZONTAL);
         container.addView(buttonLayout);
 
+        // Group backgrounds cover the button layout, so they are resized whenever the button layout changes size
+        buttonLayout.addOnLayoutChangeListener(
+            (v, left, top, right, bottom, oldLeft, oldTop, oldRight, oldBottom) -> updateGroupBackgroundSize());
+
         // Create border view
         // This is essentially a dummy view that is drawn on top of the buttonLayout so that the border appears on
         // top of them
@@ -279,9 +354,15 @@ public class SegmentedButtonGroup extends LinearLayout
         if (ta.hasValue(R.styleable.SegmentedButtonGroup_selectedBackground))
             selectedBackgroundDrawable = ta.getDrawable(R.styleable.SegmentedButtonGroup_selectedBackground);
 
+        // In the group background mode, the backgrounds are shared by every button rather than cloned for each one
+        backgroundMode = ta.getInt(R.styleable.SegmentedButtonGroup_backgroundMode, BACKGROUND_MODE_BUTTON);
+        createGroupBackgrounds();
+        indicatorMode = ta.getInt(R.styleable.SegmentedButtonGroup_indicatorMode, INDICATOR_MODE_BUTTON);
+
         // Note: Must read radius before setBorder call in order to round the border corners!
         radius = ta.getDimensionPixelSize(R.styleable.SegmentedButtonGroup_radius, 0);
         selectedButtonRadius = ta.getDimensionPixelSize(R.styleable.SegmentedButtonGroup_selectedButtonRadius, 0);
+        setOutlineClipping(ta.getBoolean(R.styleable.SegmentedButtonGroup_outlineClipping, false));
 
         // Setup border for button group
         // Width is the thickness of the border, color is the color of the border
@@ -303,6 +384,7 @@ public class SegmentedButtonGroup extends LinearLayout
         selectedBorderColor = ta.getColor(R.styleable.SegmentedButtonGroup_selectedBorderColor, Color.BLACK);
         selectedBorderDashWidth = ta.getDimensionPixelSize(R.styleable.SegmentedButtonGroup_selectedBorderDashWidth, 0);
         selectedBorderDashGap = ta.getDimensionPixelSize(R.styleable.SegmentedButtonGroup_selectedBorderDashGap, 0);
+        setupIndicatorBorderPaint();
 
         position = ta.getInt(R.styleable.SegmentedButtonGroup_position, 0);
         draggable = ta.getBoolean(R.styleable.SegmentedButtonGroup_draggable, false);
@@ -316,6 +398,11 @@ public class SegmentedButtonGroup extends LinearLayout
         hasRippleColor = ta.hasValue(R.styleable.SegmentedButtonGroup_rippleColor);
         rippleColor = ta.getColor(R.styleable.SegmentedButtonGroup_rippleColor, Color.GRAY);
 
+        hasTextLayoutProfile = ta.hasValue(R.styleable.SegmentedButtonGroup_textLayoutProfile);
+        textLayoutProfile = hasTextLayoutProfile ? TextLayoutProfile.fromType(
+            ta.getInt(R.styleable.SegmentedButtonGroup_textLayoutProfile, TextLayoutProfile.PROFILE_FAST)) : null;
+        uniformAutoSizeText = ta.getBoolean(R.styleable.SegmentedButtonGroup_uniformAutoSizeText, false);
+
         final int dividerWidth = ta.getDimensionPixelSize(R.styleable.SegmentedButtonGroup_dividerWidth, 1);
         final int dividerRadius = ta.getDimensionPixelSize(R.styleable.SegmentedButtonGroup_dividerRadius, 0);
         final int dividerPadding = ta.getDimensionPixelSize(R.styleable.SegmentedButtonGroup_dividerPadding, 0);
@@ -385,8 +472,24 @@ public class SegmentedButtonGroup extends LinearLayout
             // on that button explicitly
             button.setBackgroundRadius(radius);
             button.setSelectedButtonRadius(selectedButtonRadius);
-            button.setDefaultBackground(backgroundDrawable);
-            button.setDefaultSelectedBackground(selectedBackgroundDrawable);
+            button.setOutlineClipping(isOutlineClippingActive());
+            button.setGroupIndicator(indicatorMode == INDICATOR_MODE_GROUP);
+            //
+            // In the group background mode, the button draws its slice of the shared group backgrounds instead
+            if (backgroundMode == BACKGROUND_MODE_GROUP)
+            {
+                button.setGroupBackground(groupBackground, selectedGroupBackground);
+            }
+            else
+            {
+                button.setDefaultBackground(backgroundDrawable);
+                button.setDefaultSelectedBackground(selectedBackgroundDrawable);
+            }
+
+            // Text layout profile is only passed to the button if one is specified for the group and the button does
+            // not have its own profile
+            if (hasTextLayoutProfile)
+                button.setDefaultTextLayoutProfile(textLayoutProfile);
 
             // Setup listener that detects changes in visibility for the buttons
             button._setOnVisibilityChangedListener((button1, visibility) -> {
@@ -545,6 +648,74 @@ public class SegmentedButtonGroup extends LinearLayout
         }
     }
 
+    /**
+     * Return the smallest text size that fits across all of the visible auto-sized buttons from their last measure
+     *
+     * Returns the max float value if there are no auto-sized buttons with text.
+     */
+    private float getUniformAutoSizeTextSize()
+    {
+        float textSize = Float.MAX_VALUE;
+        for (SegmentedButton button : buttons)
+        {
+            if (button.getVisibility() != GONE && button.isAutoSizeText())
+                textSize = Math.min(textSize, button.getAutoSizeFittedTextSize());
+        }
+
+        return textSize;
+    }
+
+    /**
+     * Limit each button to the shared text size
+     *
+     * @param textSize shared text size, in pixels
+     * @return true if the text size of any visible button changes and so the button needs to be measured again
+     */
+    private boolean setUniformAutoSizeTextSize(float textSize)
+    {
+        boolean changed = false;
+        for (SegmentedButton button : buttons)
+        {
+            button.setAutoSizeTextSizeLimit(textSize);
+
+            if (button.getVisibility() != GONE && button.isAutoSizeText()
+                && button.getAppliedTextSize() != Math.min(textSize, button.getAutoSizeFittedTextSize()))
+            {
+                // Buttons are not measured again if the measure spec is unchanged unless a layout is forced
+                button.forceLayout();
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    @Override
+    protected void onDetachedFromWindow()
+    {
+        super.onDetachedFromWindow();
+
+        // Display lists are no longer drawn once detached, so the retired rasters can be reused
+        releaseRetiredGroupBackgrounds();
+    }
+
+    /**
+     * Return the retired rasters of the current & replaced group backgrounds to the BitmapPool
+     *
+     * This must only be called once the buttons have been drawn with their current paints, or once detached.
+     */
+    private void releaseRetiredGroupBackgrounds()
+    {
+        if (groupBackground != null)
+            groupBackground.releaseRetiredBitmaps();
+        if (selectedGroupBackground != null)
+            selectedGroupBackground.releaseRetiredBitmaps();
+
+        for (GroupBackground background : retiredGroupBackgrounds)
+            background.releaseRetiredBitmaps();
+        retiredGroupBackgrounds.clear();
+    }
+
     // endregion
 
     // region Events
@@ -720,6 +891,23 @@ public class SegmentedButtonGroup extends LinearLayout
         return super.dispatchTouchEvent(ev);
     }
 
+    /**
+     * Return the position of the first button after the given position that is not GONE, the end button of the
+     * selected button indicator when it starts at the given position (see IndicatorGeometry)
+     *
+     * @return Position of the end button, or the number of buttons if there is no visible button after the position
+     */
+    private int getEndButtonPosition(int position)
+    {
+        int endPosition = position + 1;
+        while (endPosition < buttons.size() && buttons.get(endPosition).getVisibility() == GONE)
+        {
+            ++endPosition;
+        }
+
+        return endPosition;
+    }
+
     /**
      * Move the selected button to a new position, used for animating and dragging the selected button
      *
@@ -745,12 +933,7 @@ public class SegmentedButtonGroup extends LinearLayout
 
         // Get the current button end position, which will start at the current button plus 1 because the width of the
         // selected button is 1. Check each button to the right for the first one that is not GONE
-        int currentEndButtonPosition = currentButtonPosition + 1;
-        while (currentEndButtonPosition < buttons.size()
-            && buttons.get(currentEndButtonPosition).getVisibility() == GONE)
-        {
-            ++currentEndButtonPosition;
-        }
+        final int currentEndButtonPosition = getEndButtonPosition(currentButtonPosition);
 
         // Grab the current button from the position and clip the right side of the button to show the appropriate
         // offset
@@ -787,11 +970,7 @@ public class SegmentedButtonGroup extends LinearLayout
         // Repeat same process above but check with where the last button position ended. Note, this last end position
         // is the next VISIBLE button, so we start at 1 plus the last position because the width of the selected button
         // is 1
-        int lastEndPosition = lastPosition + 1;
-        while (lastEndPosition < buttons.size() && buttons.get(lastEndPosition).getVisibility() == GONE)
-        {
-            ++lastEndPosition;
-        }
+        final int lastEndPosition = getEndButtonPosition(lastPosition);
 
         // Clip any views like explained above
         if (lastEndPosition != currentEndButtonPosition && lastEndPosition != currentButtonPosition
@@ -805,6 +984,154 @@ public class SegmentedButtonGroup extends LinearLayout
         invalidate();
     }
 
+    /**
+     * Calculate the rectangle of the selected button indicator, in the coordinates of the button layout, from the
+     * current position
+     *
+     * The indicator starts at the current offset within the current button and ends at the same offset within the
+     * next visible button, the same geometry that the buttons clipped by moveSelectedButton use (see
+     * IndicatorGeometry).
+     *
+     * indicatorBaseWidth is set to the width of the button that the indicator is nearest in size to. The indicator is
+     * exactly this width when it is not between two buttons.
+     *
+     * @return false if there is no indicator to draw
+     */
+    private boolean calculateIndicatorRect(RectF rect)
+    {
+        final int currentButtonPosition = (int)currentPosition;
+        if (currentButtonPosition < 0 || currentButtonPosition >= buttons.size())
+            return false;
+
+        final float currentOffset = currentPosition - currentButtonPosition;
+        final SegmentedButton currentButton = buttons.get(currentButtonPosition);
+        if (currentButton.getVisibility() == GONE)
+            return false;
+
+        // Find the next button that is not GONE, the indicator ends within that button
+        final int currentEndButtonPosition = getEndButtonPosition(currentButtonPosition);
+
+        if (currentEndButtonPosition < buttons.size())
+        {
+            final SegmentedButton currentEndButton = buttons.get(currentEndButtonPosition);
+            indicatorBaseWidth = IndicatorGeometry.setIndicatorRect(rect, currentButton.getLeft(),
+                currentButton.getWidth(), currentEndButton.getLeft(), currentEndButton.getWidth(), currentOffset,
+                currentButton.getTop(), currentButton.getBottom());
+        }
+        else
+        {
+            // Right-most button, the indicator ends at the right side of the button since the part of the indicator
+            // past the end of the group is not shown
+            indicatorBaseWidth = IndicatorGeometry.setIndicatorRect(rect, currentButton.getLeft(),
+                currentButton.getWidth(), currentButton.getRight(), 0.0f, currentOffset, currentButton.getTop(),
+                currentButton.getBottom());
+        }
+
+        return rect.width() > 0.0f && rect.height() > 0.0f;
+    }
+
+    /**
+     * Draw the selected button indicator on the canvas of the button layout, used in the group indicator mode
+     */
+    private void drawIndicator(Canvas canvas)
+    {
+        if (!calculateIndicatorRect(indicatorRect))
+            return;
+
+        final float width = indicatorRect.width();
+        final float height = indicatorRect.height();
+
+        canvas.save();
+
+        // Round the indicator at the corners of the group like the backgrounds of the end buttons, unless the group
+        // is already clipped to its outline
+        if (radius > 0 && !isOutlineClippingActive())
+            canvas.clipPath(indicatorClipPath.get(buttonLayout.getWidth(), buttonLayout.getHeight(), radius));
+
+        // Cached paths are at the origin & built for the nearest button width, so translate and scale the canvas to
+        // the indicator rather than building the paths each frame
+        canvas.translate(indicatorRect.left, indicatorRect.top);
+        final Path path = selectedButtonRadius > 0 ? indicatorPath.get(indicatorBaseWidth, height,
+            selectedButtonRadius) : null;
+        final float pathScale = width / indicatorBaseWidth;
+
+        if (selectedBackgroundDrawable instanceof ColorDrawable)
+        {
+            // Solid colors are drawn directly with a paint without clipping
+            indicatorPaint.setColor(((ColorDrawable)selectedBackgroundDrawable).getColor());
+
+            if (path != null)
+            {
+                canvas.save();
+                canvas.scale(pathScale, 1.0f);
+                canvas.drawPath(path, indicatorPaint);
+                canvas.restore();
+            }
+            else
+            {
+                canvas.drawRect(0.0f, 0.0f, width, height, indicatorPaint);
+            }
+        }
+        else if (selectedBackgroundDrawable != null)
+        {
+            canvas.save();
+
+            if (path != null)
+            {
+                // Only the clip is scaled, the drawable is drawn at the size of the indicator
+                canvas.scale(pathScale, 1.0f);
+                canvas.clipPath(path);
+                canvas.scale(1.0f / pathScale, 1.0f);
+            }
+            else
+            {
+                canvas.clipRect(0.0f, 0.0f, width, height);
+            }
+
+            if (backgroundMode == BACKGROUND_MODE_GROUP)
+            {
+                // In the group background mode, the drawable covers the button layout so the slice behind the
+                // indicator is drawn
+                canvas.translate(-indicatorRect.left, -indicatorRect.top);
+                selectedBackgroundDrawable.draw(canvas);
+            }
+            else
+            {
+                // Drawable is shared with the buttons, but they do not draw it in the group indicator mode, so it is
+                // left sized to the indicator and the bounds are only set when the size of the indicator changes
+                // The buttons restore their own size when leaving the group indicator mode
+                final int drawableWidth = Math.round(width);
+                final int drawableHeight = Math.round(height);
+                final Rect bounds = selectedBackgroundDrawable.getBounds();
+                if (bounds.left != 0 || bounds.top != 0 || bounds.right != drawableWidth
+                    || bounds.bottom != drawableHeight)
+                {
+                    selectedBackgroundDrawable.setBounds(0, 0, drawableWidth, drawableHeight);
+                }
+
+                selectedBackgroundDrawable.draw(canvas);
+            }
+
+            canvas.restore();
+        }
+
+        // Draw a border around the indicator
+        // Like the buttons, the border is inset by half of the border width minus half a pixel so the entire border
+        // is within the indicator without antialiasing bleed through around the edge
+        if (indicatorBorderPaint != null)
+        {
+            final float inset = indicatorBorderPaint.getStrokeWidth() / 2.0f - 0.5f;
+            final float baseWidth = indicatorBaseWidth - 2.0f * inset;
+
+            canvas.translate(inset, inset);
+            canvas.scale((width - 2.0f * inset) / baseWidth, 1.0f);
+            canvas.drawPath(indicatorBorderPath.get(baseWidth, height - 2.0f * inset, selectedButtonRadius),
+                indicatorBorderPaint);
+        }
+
+        canvas.restore();
+    }
+
     /**
      * Update the currently selected position
      *
@@ -932,8 +1259,18 @@ public class SegmentedButtonGroup extends LinearLayout
         // Check for non-null buttons because parent class calls setBackground
         if (buttons != null)
         {
-            for (SegmentedButton button : buttons)
-                button.setBackground(drawable);
+            if (backgroundMode == BACKGROUND_MODE_GROUP)
+            {
+                // Buttons draw their slice of the shared background, unless they have their own background
+                createGroupBackgrounds();
+                for (SegmentedButton button : buttons)
+                    button.setGroupBackground(groupBackground, selectedGroupBackground);
+            }
+            else
+            {
+                for (SegmentedButton button : buttons)
+                    button.setBackgroundFromGroup(drawable);
+            }
         }
     }
 
@@ -1003,8 +1340,19 @@ public class SegmentedButtonGroup extends LinearLayout
     {
         selectedBackgroundDrawable = drawable;
 
-        for (SegmentedButton button : buttons)
-            button.setSelectedBackground(drawable);
+        if (backgroundMode == BACKGROUND_MODE_GROUP)
+        {
+            // Buttons draw their slice of the shared selected background, unless they have their own selected
+            // background
+            createGroupBackgrounds();
+            for (SegmentedButton button : buttons)
+                button.setGroupBackground(groupBackground, selectedGroupBackground);
+        }
+        else
+        {
+            for (SegmentedButton button : buttons)
+                button.setSelectedBackgroundFromGroup(drawable);
+        }
     }
 
     /**
@@ -1042,6 +1390,167 @@ public class SegmentedButtonGroup extends LinearLayout
         setSelectedBackground(color);
     }
 
+    /**
+     * Returns how the background & selected background of the group are drawn, one of BackgroundMode types
+     */
+    @BackgroundMode
+    public int getBackgroundMode()
+    {
+        return backgroundMode;
+    }
+
+    /**
+     * Set how the background & selected background of the group are drawn
+     *
+     * In the button mode, each button is given its own copy of the backgrounds and draws them at the size of the
+     * button. This is the default.
+     *
+     * In the group mode, the backgrounds cover the entire group and each button draws the slice of the backgrounds
+     * behind it. Gradients & images flow continuously across the buttons, and backgrounds that must be rasterized are
+     * only rasterized once for the entire group instead of once per button. Buttons with their own background or
+     * selected background still draw their own instead.
+     *
+     * Backgrounds that the buttons were given by the group in the button mode are removed when switching to the group
+     * mode and given back when switching to the button mode. Backgrounds set on the buttons themselves are kept.
+     *
+     * @param backgroundMode one of BackgroundMode types
+     */
+    public void setBackgroundMode(@BackgroundMode int backgroundMode)
+    {
+        this.backgroundMode = backgroundMode;
+
+        // Group backgrounds are created in the group mode and released in the button mode
+        createGroupBackgrounds();
+
+        for (SegmentedButton button : buttons)
+        {
+            if (backgroundMode == BACKGROUND_MODE_GROUP)
+            {
+                // Backgrounds from the group would be drawn instead of the group backgrounds, so remove them
+                button.clearDefaultBackgrounds();
+            }
+            else
+            {
+                // Give the group backgrounds back to the buttons without their own backgrounds
+                button.setDefaultBackground(backgroundDrawable);
+                button.setDefaultSelectedBackground(selectedBackgroundDrawable);
+            }
+
+            // Paints of the button are setup again for the new backgrounds
+            button.setGroupBackground(groupBackground, selectedGroupBackground);
+        }
+    }
+
+    /**
+     * Returns how the selected button indicator is drawn, one of IndicatorMode types
+     */
+    @IndicatorMode
+    public int getIndicatorMode()
+    {
+        return indicatorMode;
+    }
+
+    /**
+     * Set how the selected button indicator is drawn
+     *
+     * In the button mode, each button that the indicator overlaps draws the selected background, text, drawable &
+     * border clipped to the part of the indicator within the button. This is the default.
+     *
+     * In the group mode, the group draws the backgrounds of the buttons followed by the indicator once as a single
+     * rounded rectangle moving across the buttons. Each button only draws its selected text & drawable clipped to the
+     * indicator, which roughly halves the overdraw & draw calls while animating. The indicator is drawn with the
+     * selected background & border of the group, selected backgrounds set on individual buttons are ignored.
+     *
+     * @param indicatorMode one of IndicatorMode types
+     */
+    public void setIndicatorMode(@IndicatorMode int indicatorMode)
+    {
+        this.indicatorMode = indicatorMode;
+
+        for (SegmentedButton button : buttons)
+            button.setGroupIndicator(indicatorMode == INDICATOR_MODE_GROUP);
+
+        buttonLayout.invalidate();
+    }
+
+    /**
+     * Returns a snapshot of the memory retained by the group and its buttons
+     *
+     * This includes the bitmaps for the backgrounds & drawables, paths, text layouts and ripple drawables. Objects
+     * shared between buttons are only counted once. Calculating the footprint only walks the buttons without
+     * allocating any graphics objects, so it is cheap enough to call from diagnostics screens or tests.
+     */
+    @NonNull
+    public MemoryFootprint getMemoryFootprint()
+    {
+        final MemoryFootprint footprint = new MemoryFootprint();
+
+        for (SegmentedButton button : buttons)
+            button.addMemoryFootprint(footprint);
+
+        indicatorPath.addTo(footprint);
+        indicatorBorderPath.addTo(footprint);
+        indicatorClipPath.addTo(footprint);
+
+        return footprint;
+    }
+
+    /**
+     * Create the shared group backgrounds from the background & selected background if in the group background
+     * mode, sized to the button layout
+     */
+    private void createGroupBackgrounds()
+    {
+        final boolean isGroupMode = backgroundMode == BACKGROUND_MODE_GROUP;
+
+        // Old backgrounds are replaced on every button right after this, so their rasters can be reused once the
+        // buttons have been drawn again
+        if (groupBackground != null)
+        {
+            groupBackground.release();
+            retiredGroupBackgrounds.add(groupBackground);
+        }
+        if (selectedGroupBackground != null)
+        {
+            selectedGroupBackground.release();
+            retiredGroupBackgrounds.add(selectedGroupBackground);
+        }
+
+        groupBackground = isGroupMode && backgroundDrawable != null ? new GroupBackground(backgroundDrawable) : null;
+        selectedGroupBackground = isGroupMode && selectedBackgroundDrawable != null
+            ? new GroupBackground(selectedBackgroundDrawable) : null;
+
+        if (groupBackground != null)
+            groupBackground.setSize(buttonLayout.getWidth(), buttonLayout.getHeight());
+
+        if (selectedGroupBackground != null)
+            selectedGroupBackground.setSize(buttonLayout.getWidth(), buttonLayout.getHeight());
+    }
+
+    /**
+     * Resize the shared group backgrounds to the button layout, updating the paints of each button if the size
+     * changed
+     */
+    private void updateGroupBackgroundSize()
+    {
+        boolean changed = false;
+
+        if (groupBackground != null)
+            changed = groupBackground.setSize(buttonLayout.getWidth(), buttonLayout.getHeight());
+
+        if (selectedGroupBackground != null)
+            changed |= selectedGroupBackground.setSize(buttonLayout.getWidth(), buttonLayout.getHeight());
+
+        if (!changed)
+            return;
+
+        for (SegmentedButton button : buttons)
+        {
+            button.setupBackgroundBitmaps();
+            button.invalidate();
+        }
+    }
+
     /**
      * Return the width of the border, in pixels
      *
@@ -1172,6 +1681,33 @@ public class SegmentedButtonGroup extends LinearLayout
         // Loop through each button and set the selected button border
         for (SegmentedButton button : buttons)
             button.setSelectedButtonBorder(width, color, dashWidth, dashGap);
+
+        setupIndicatorBorderPaint();
+        buttonLayout.invalidate();
+    }
+
+    /**
+     * Create the paint for the border around the indicator in the group indicator mode from the selected border
+     */
+    private void setupIndicatorBorderPaint()
+    {
+        if (selectedBorderWidth > 0)
+        {
+            indicatorBorderPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            indicatorBorderPaint.setStyle(Paint.Style.STROKE);
+            indicatorBorderPaint.setStrokeWidth(selectedBorderWidth);
+            indicatorBorderPaint.setColor(selectedBorderColor);
+
+            if (selectedBorderDashWidth > 0)
+            {
+                indicatorBorderPaint.setPathEffect(new DashPathEffect(
+                    new float[] {selectedBorderDashWidth, selectedBorderDashGap}, 0));
+            }
+        }
+        else
+        {
+            indicatorBorderPaint = null;
+        }
     }
 
     /**
@@ -1212,6 +1748,54 @@ public class SegmentedButtonGroup extends LinearLayout
             invalidateOutline();
     }
 
+    /**
+     * Whether or not the content of the group is clipped to its rounded outline
+     *
+     * This only has an effect on API 21 and above.
+     */
+    public boolean isOutlineClipping()
+    {
+        return outlineClipping;
+    }
+
+    /**
+     * Set whether or not the content of the group is clipped to its rounded outline
+     *
+     * By default, each button rounds its own corners at the edges of the group by drawing its background through a
+     * rounded path and clipping its ripple to that path. This requires backgrounds to be drawn with a paint, which
+     * may rasterize the background to a bitmap, and clipping to a path is expensive.
+     *
+     * When enabled on API 21 and above, the entire group is clipped to its rounded outline instead, which is an
+     * anti-aliased clip done by the hardware renderer. The buttons skip their clip paths & background bitmaps and draw
+     * their backgrounds directly. Below API 21, this setting is ignored and the buttons round their own corners.
+     *
+     * Note: Content drawn outside of the group bounds, e.g. by a parent with clipChildren disabled, is clipped too.
+     *
+     * @param outlineClipping whether or not to clip the group to its rounded outline
+     */
+    public void setOutlineClipping(final boolean outlineClipping)
+    {
+        this.outlineClipping = outlineClipping;
+
+        if (VERSION.SDK_INT >= VERSION_CODES.LOLLIPOP)
+            setClipToOutline(outlineClipping);
+
+        // Check for non-null buttons because this is called while reading the attributes
+        if (buttons != null)
+        {
+            for (SegmentedButton button : buttons)
+                button.setOutlineClipping(isOutlineClippingActive());
+        }
+    }
+
+    /**
+     * Whether or not outline clipping is enabled and supported on this API version
+     */
+    private boolean isOutlineClippingActive()
+    {
+        return outlineClipping && VERSION.SDK_INT >= VERSION_CODES.LOLLIPOP;
+    }
+
     /**
      * Returns the current corner radius for the selected button, in pixels
      *
@@ -1237,6 +1821,8 @@ public class SegmentedButtonGroup extends LinearLayout
             button.setSelectedButtonRadius(selectedButtonRadius);
             button.setupSelectedButtonClipPath();
         }
+
+        buttonLayout.invalidate();
     }
 
     /**
@@ -1433,6 +2019,68 @@ public class SegmentedButtonGroup extends LinearLayout
             button.setRipple(color);
     }
 
+    /**
+     * Returns the text layout profile used for the buttons in the group
+     *
+     * Buttons with their own text layout profile will use that instead. Returns null if no profile was specified for
+     * the group, in which case each button uses its own default profile.
+     */
+    @Nullable
+    public TextLayoutProfile getTextLayoutProfile()
+    {
+        return textLayoutProfile;
+    }
+
+    /**
+     * Set the text layout profile used for laying out the text of all buttons in the group
+     *
+     * This will override the text layout profile set on each button.
+     *
+     * @param profile new text layout profile, one of the predefined profiles in TextLayoutProfile or a custom profile
+     */
+    public void setTextLayoutProfile(final @NonNull TextLayoutProfile profile)
+    {
+        hasTextLayoutProfile = true;
+        textLayoutProfile = profile;
+
+        // Loop through and set the text layout profile for each button
+        for (SegmentedButton button : buttons)
+            button.setTextLayoutProfile(profile);
+    }
+
+    /**
+     * Whether or not all auto-sized buttons in the group share the same text size
+     */
+    public boolean isUniformAutoSizeText()
+    {
+        return uniformAutoSizeText;
+    }
+
+    /**
+     * Set whether or not all auto-sized buttons in the group share the same text size
+     *
+     * If enabled, then the text size used for each button that has auto-sizing enabled is the smallest text size that
+     * fits all of the buttons, so that the buttons look consistent. Otherwise, each button fits its own text size.
+     *
+     * @param uniformAutoSizeText whether or not to share the text size between auto-sized buttons
+     */
+    public void setUniformAutoSizeText(final boolean uniformAutoSizeText)
+    {
+        this.uniformAutoSizeText = uniformAutoSizeText;
+
+        // Remove the limit from the buttons, it is set again when measuring if enabled
+        if (!uniformAutoSizeText)
+        {
+            for (SegmentedButton button : buttons)
+                button.setAutoSizeTextSizeLimit(Float.MAX_VALUE);
+        }
+
+        // Force each button to be measured again since the text size may change
+        for (SegmentedButton button : buttons)
+            button.forceLayout();
+        requestLayout();
+    }
+
     /**
      * Returns divider drawable that is placed between each button in the group, value of null indicates no drawable
      */
@@ -1658,6 +2306,72 @@ public class SegmentedButtonGroup extends LinearLayout
 
     // region Classes
 
+    /**
+     * Layout containing the buttons
+     *
+     * In the group indicator mode, the layout draws the background of each button followed by the selected button
+     * indicator before drawing the buttons, which then draw their text & drawables on top of the indicator.
+     */
+    private class ButtonLayout extends LinearLayout
+    {
+        ButtonLayout(Context context)
+        {
+            super(context);
+        }
+
+        @Override
+        protected void onMeasure(final int widthMeasureSpec, final int heightMeasureSpec)
+        {
+            if (!uniformAutoSizeText)
+            {
+                super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+                return;
+            }
+
+            // The width of each button does not depend on its text size, so the text size that fits each button is
+            // typically the same as the last measure. Apply the shared text size from the last measure before
+            // measuring the buttons so that the buttons are only measured once with the final text size
+            final float textSize = getUniformAutoSizeTextSize();
+            setUniformAutoSizeTextSize(textSize);
+
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+
+            // Width of the buttons changed (e.g. first measure or the group was resized), so measure the buttons
+            // whose text size changed again with the new shared size
+            // This is contained to the button layout, the fitted sizes are memoized by each button so this does not
+            // need to measure the text again
+            final float newTextSize = getUniformAutoSizeTextSize();
+            if (newTextSize != textSize && setUniformAutoSizeTextSize(newTextSize))
+                super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        }
+
+        @Override
+        protected void dispatchDraw(Canvas canvas)
+        {
+            if (indicatorMode == INDICATOR_MODE_GROUP)
+            {
+                for (SegmentedButton button : buttons)
+                {
+                    if (button.getVisibility() != VISIBLE)
+                        continue;
+
+                    canvas.save();
+                    canvas.translate(button.getLeft(), button.getTop());
+                    button.drawBackground(canvas);
+                    canvas.restore();
+                }
+
+                drawIndicator(canvas);
+            }
+
+            super.dispatchDraw(canvas);
+
+            // Buttons have now been drawn with their current paints, so the retired group background rasters are no
+            // longer referenced by their display lists
+            releaseRetiredGroupBackgrounds();
+        }
+    }
+
     /**
      * Outline that creates a rounded rectangle with the radius set to the specified corner radius from layout
      *
@@ -0,0 +1,236 @@
+package com.addisonelliott.segmentedbutton;
+
+import android.graphics.Color;
+import android.graphics.Typeface;
+import android.text.Layout;
+import android.text.TextPaint;
+import android.util.SparseIntArray;
+import androidx.annotation.NonNull;
+import java.util.Arrays;
+
+/**
+ * Finds the largest text size that fits the text of a SegmentedButton in the width available
+ *
+ * The candidate text sizes are the minimum size, stepping up by the step granularity until the maximum size. A binary
+ * search is used over the candidate sizes to find the largest size that fits, so only a handful of sizes are checked.
+ *
+ * Text fits in the width if it fits on one line, or if it can be wrapped onto no more than the maximum lines count
+ * without breaking any words. The measurements for each candidate size are cached, and any text layouts needed are
+ * retrieved from the TextLayoutCache. The resulting size is memoized per available width, so repeated measure passes
+ * with the same width do not measure the text again.
+ *
+ * The unselected and selected typefaces are both checked so that the text fits in either state.
+ *
+ * Note: This class is not thread-safe and should only be used from the UI thread.
+ */
+final class TextAutoSizer
+{
+    // Maximum number of available widths to memoize the fitted text size for
+    private static final int MAX_FITTED_WIDTHS = 16;
+    // Color of the paints used for measuring the text, any color works since it does not affect the measurements
+    private static final int MEASURE_COLOR = Color.BLACK;
+
+    // Candidate text sizes in pixels, sorted in ascending order
+    private final float[] sizes;
+
+    // Text & style to fit
+    private String text;
+    private String[] words;
+    private Typeface typeface, selectedTypeface;
+    private int linesCount;
+    private TextLayoutProfile profile;
+
+    // Cached width of the text on one line & width of the longest word for each candidate size, NaN if not measured
+    // yet. Index 0 is for the unselected typeface, index 1 is for the selected typeface
+    private final float[][] lineWidths, wordWidths;
+
+    // Index of the largest candidate size that fits for each available width that has been searched
+    // Cleared once it holds MAX_FITTED_WIDTHS widths, e.g. while the button is being resized, so it does not grow
+    // unbounded
+    private final SparseIntArray fittedIndices;
+
+    /**
+     * Create a new auto-sizer for the given text size range
+     *
+     * @param minTextSize     minimum text size in pixels
+     * @param maxTextSize     maximum text size in pixels
+     * @param stepGranularity step between candidate text sizes in pixels
+     */
+    TextAutoSizer(float minTextSize, float maxTextSize, float stepGranularity)
+    {
+        if (minTextSize <= 0.0f || maxTextSize < minTextSize || stepGranularity <= 0.0f)
+        {
+            throw new IllegalArgumentException("Invalid auto-size configuration for SegmentedButton: min text size "
+                + "must be positive, max text size must be at least the min text size and step granularity must be "
+                + "positive");
+        }
+
+        // Candidate sizes from the min to max size, the max size is always included even if it is not a whole step
+        final int count = (int)Math.floor((maxTextSize - minTextSize) / stepGranularity) + 1;
+        final boolean hasMaxSize = minTextSize + (count - 1) * stepGranularity >= maxTextSize;
+        sizes = new float[hasMaxSize ? count : count + 1];
+        for (int i = 0; i < count; ++i)
+            sizes[i] = minTextSize + i * stepGranularity;
+        sizes[sizes.length - 1] = maxTextSize;
+
+        lineWidths = new float[2][sizes.length];
+        wordWidths = new float[2][sizes.length];
+        fittedIndices = new SparseIntArray();
+    }
+
+    /**
+     * Set the text & style to fit, this clears any cached measurements
+     */
+    void setText(@NonNull String text, Typeface typeface, Typeface selectedTypeface, int linesCount,
+        @NonNull TextLayoutProfile profile)
+    {
+        this.text = text;
+        this.words = text.split("\\s+");
+        this.typeface = typeface;
+        this.selectedTypeface = selectedTypeface;
+        this.linesCount = linesCount;
+        this.profile = profile;
+
+        for (int i = 0; i < 2; ++i)
+        {
+            Arrays.fill(lineWidths[i], Float.NaN);
+            Arrays.fill(wordWidths[i], Float.NaN);
+        }
+        fittedIndices.clear();
+    }
+
+    /**
+     * Returns the minimum text size in pixels
+     */
+    float getMinTextSize()
+    {
+        return sizes[0];
+    }
+
+    /**
+     * Returns the maximum text size in pixels
+     */
+    float getMaxTextSize()
+    {
+        return sizes[sizes.length - 1];
+    }
+
+    /**
+     * Returns the width of the text on one line at the maximum text size, in pixels
+     *
+     * This is the width the text would like to be, so it is used for calculating the desired width of the button.
+     */
+    int getMaxWidth()
+    {
+        final int index = sizes.length - 1;
+        return (int)Math.ceil(Math.max(getLineWidth(0, index), getLineWidth(1, index)));
+    }
+
+    /**
+     * Return the largest candidate text size that fits in the available width
+     *
+     * If the text does not fit at any size, then the minimum text size is returned.
+     *
+     * @param availableWidth width, in pixels, available for the text
+     * @return text size in pixels
+     */
+    float getFittedTextSize(int availableWidth)
+    {
+        int index = fittedIndices.get(availableWidth, -1);
+
+        if (index == -1)
+        {
+            // Binary search for the largest size that fits, assumes larger sizes never fit if a smaller size does not
+            int low = 1, high = sizes.length - 1;
+            index = 0;
+
+            while (low <= high)
+            {
+                final int mid = (low + high) >>> 1;
+
+                if (fits(mid, availableWidth))
+                {
+                    index = mid;
+                    low = mid + 1;
+                }
+                else
+                    high = mid - 1;
+            }
+
+            if (fittedIndices.size() >= MAX_FITTED_WIDTHS)
+                fittedIndices.clear();
+            fittedIndices.put(availableWidth, index);
+        }
+
+        return sizes[index];
+    }
+
+    /**
+     * Whether or not the text fits in the available width at the candidate size for both typefaces
+     */
+    private boolean fits(int index, int availableWidth)
+    {
+        return fits(0, index, availableWidth) && (selectedTypeface == typeface || fits(1, index, availableWidth));
+    }
+
+    /**
+     * Whether or not the text fits in the available width at the candidate size for one typeface
+     */
+    private boolean fits(int state, int index, int availableWidth)
+    {
+        // Fast path, text fits on one line
+        if (getLineWidth(state, index) <= availableWidth)
+            return true;
+
+        // Otherwise the text must be wrapped, which is only allowed if no words are broken
+        if (linesCount <= 1 || getWordWidth(state, index) > availableWidth)
+            return false;
+
+        // Layout the text without a max lines count or ellipsize so that the actual number of lines is known
+        final Layout layout = TextLayoutCache.obtain(text, getPaint(state, index), availableWidth, Integer.MAX_VALUE,
+            null, profile);
+        return layout.getLineCount() <= linesCount;
+    }
+
+    /**
+     * Return the width of the text on one line at the candidate size, measuring it if not cached
+     */
+    private float getLineWidth(int state, int index)
+    {
+        if (Float.isNaN(lineWidths[state][index]))
+            lineWidths[state][index] = getPaint(state, index).measureText(text);
+
+        return lineWidths[state][index];
+    }
+
+    /**
+     * Return the width of the longest word at the candidate size, measuring it if not cached
+     */
+    private float getWordWidth(int state, int index)
+    {
+        if (Float.isNaN(wordWidths[state][index]))
+        {
+            final TextPaint paint = getPaint(state, index);
+
+            float width = 0.0f;
+            for (String word : words)
+                width = Math.max(width, paint.measureText(word));
+
+            wordWidths[state][index] = width;
+        }
+
+        return wordWidths[state][index];
+    }
+
+    /**
+     * Return the shared paint for the unselected or selected text style at the candidate size
+     *
+     * The color does not affect the measurements, so the paints are obtained in a fixed color. This way, changing the
+     * text color of the button does not invalidate any of the cached measurements.
+     */
+    private TextPaint getPaint(int state, int index)
+    {
+        return state == 0 ? TextStyleRegistry.obtainPaint(sizes[index], MEASURE_COLOR, typeface)
+            : TextStyleRegistry.obtainPaint(sizes[index], MEASURE_COLOR, selectedTypeface);
+    }
+}
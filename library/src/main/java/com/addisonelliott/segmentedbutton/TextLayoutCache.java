@@ -0,0 +1,271 @@
+package com.addisonelliott.segmentedbutton;
+
+import android.graphics.Typeface;
+import android.os.Build;
+import android.os.Build.VERSION_CODES;
+import android.text.BoringLayout;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.LruCache;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Process-wide cache of text layouts used by SegmentedButton
+ *
+ * Creating a StaticLayout requires shaping and measuring the text, which is expensive relative to the rest of the
+ * measure pass. Screens with many button groups tend to repeat the same labels (e.g. "Day/Week/Month") at the same
+ * widths, so rather than each button creating its own layout, layouts are shared between buttons through this cache.
+ *
+ * Layouts are keyed by the text, text size, typeface, color, max lines, ellipsize type, text layout profile and
+ * width. The least recently used layouts are evicted once the cache is full.
+ *
+ * Text that fits on a single line without any special handling (i.e. "boring" text) is laid out with a BoringLayout,
+ * which is much cheaper to create than a StaticLayout. For the same key, the type of layout will always be the same
+ * since it is determined by whether the text fits in the width.
+ *
+ * The TextPaint given must be a shared paint from the TextStyleRegistry. These paints are never modified, so cached
+ * layouts reference the paint directly rather than a copy. The color is included in the key since the layout draws
+ * with the color of its paint, even though it does not affect the shape of the text.
+ *
+ * Note: The cache is thread-safe, but the layouts returned should only be drawn from the UI thread.
+ */
+public final class TextLayoutCache
+{
+    // Maximum number of layouts stored in the cache before the least recently used layouts are evicted
+    private static final int MAX_SIZE = 256;
+
+    private static final LruCache<Key, Layout> cache = new LruCache<>(MAX_SIZE);
+
+    private TextLayoutCache()
+    {
+    }
+
+    /**
+     * Return a layout for the given text and parameters, creating one if it is not already in the cache
+     *
+     * @param text      text to layout
+     * @param paint     shared paint from the TextStyleRegistry containing the text size, typeface and color to layout
+     *                  the text with
+     * @param width     width of the layout, in pixels
+     * @param maxLines  maximum number of lines in the layout
+     * @param ellipsize truncation type for the text, null for no truncation
+     * @param profile   line breaking, hyphenation, padding & justification parameters for the layout
+     * @return shared layout that must not be modified
+     */
+    static Layout obtain(@NonNull String text, @NonNull TextPaint paint, int width, int maxLines,
+        @Nullable TextUtils.TruncateAt ellipsize, @NonNull TextLayoutProfile profile)
+    {
+        return obtain(text, text, paint, width, maxLines, ellipsize, profile);
+    }
+
+    /**
+     * Return a layout for the given text and parameters, creating one from the layout text if it is not already in the
+     * cache
+     *
+     * The layout text must have the same characters as the text. On Android P and above, this may be a PrecomputedText
+     * created with the same paint & profile, in which case the layout is built from the precomputed measurements
+     * rather than measuring the text again. The cache is keyed by the text, so the layout is shared regardless.
+     *
+     * @param text       text to layout, used for the cache key
+     * @param layoutText text to create the layout from if it is not in the cache
+     * @param paint      shared paint from the TextStyleRegistry containing the text size, typeface and color to layout
+     *                   the text with
+     * @param width      width of the layout, in pixels
+     * @param maxLines   maximum number of lines in the layout
+     * @param ellipsize  truncation type for the text, null for no truncation
+     * @param profile    line breaking, hyphenation, padding & justification parameters for the layout
+     * @return shared layout that must not be modified
+     */
+    static Layout obtain(@NonNull String text, @NonNull CharSequence layoutText, @NonNull TextPaint paint, int width,
+        int maxLines, @Nullable TextUtils.TruncateAt ellipsize, @NonNull TextLayoutProfile profile)
+    {
+        final Key key = new Key(text, paint, maxLines, ellipsize, profile, width);
+
+        Layout layout = cache.get(key);
+        if (layout != null)
+            return layout;
+
+        layout = createLayout(layoutText, paint, width, maxLines, ellipsize, profile);
+        cache.put(key, layout);
+
+        return layout;
+    }
+
+    /**
+     * Return a single-line layout for boring text that fits in the given width, creating one if it is not already in
+     * the cache
+     *
+     * The caller is responsible for ensuring the text is boring and that metrics.width is less than or equal to the
+     * width.
+     *
+     * @param text      text to layout
+     * @param paint     shared paint from the TextStyleRegistry containing the text size, typeface and color to layout
+     *                  the text with
+     * @param width     width of the layout, in pixels
+     * @param maxLines  maximum number of lines in the layout, used only for the cache key
+     * @param ellipsize truncation type for the text, used only for the cache key
+     * @param profile   text layout profile, only the include pad value is used for a single-line layout
+     * @param metrics   metrics of the text returned from BoringLayout.isBoring
+     * @return shared layout that must not be modified
+     */
+    static Layout obtainBoring(@NonNull String text, @NonNull TextPaint paint, int width, int maxLines,
+        @Nullable TextUtils.TruncateAt ellipsize, @NonNull TextLayoutProfile profile,
+        @NonNull BoringLayout.Metrics metrics)
+    {
+        final Key key = new Key(text, paint, maxLines, ellipsize, profile, width);
+
+        Layout layout = cache.get(key);
+        if (layout != null)
+            return layout;
+
+        layout = BoringLayout.make(text, paint, width, Layout.Alignment.ALIGN_NORMAL, 1.0f, 0,
+            metrics, profile.getIncludePad());
+        cache.put(key, layout);
+
+        return layout;
+    }
+
+    /**
+     * Return the height of a single-line layout with the given font metrics
+     *
+     * This matches the height of the layout returned from obtainBoring without having to create it.
+     */
+    static int getBoringHeight(@NonNull BoringLayout.Metrics metrics, @NonNull TextLayoutProfile profile)
+    {
+        return profile.getIncludePad() ? metrics.bottom - metrics.top : metrics.descent - metrics.ascent;
+    }
+
+    /**
+     * Create a new static layout without going through the cache
+     */
+    private static Layout createLayout(CharSequence text, TextPaint paint, int width, int maxLines,
+        @Nullable TextUtils.TruncateAt ellipsize, TextLayoutProfile profile)
+    {
+        // Old way of creating static layout was deprecated but I dont think there is any speed difference between
+        // the two
+        if (Build.VERSION.SDK_INT >= VERSION_CODES.M)
+        {
+            final StaticLayout.Builder builder = StaticLayout.Builder
+                .obtain(text, 0, text.length(), paint, width)
+                .setMaxLines(maxLines)
+                .setEllipsize(ellipsize)
+                .setBreakStrategy(profile.getBreakStrategy())
+                .setHyphenationFrequency(profile.getHyphenationFrequency())
+                .setIncludePad(profile.getIncludePad());
+
+            // Justification is only available on Android O and above
+            if (Build.VERSION.SDK_INT >= VERSION_CODES.O)
+                builder.setJustificationMode(profile.getJustificationMode());
+
+            return builder.build();
+        }
+        else
+        {
+            return new StaticLayout(text, paint, width, Layout.Alignment.ALIGN_NORMAL, 1.0f, 0,
+                profile.getIncludePad());
+        }
+    }
+
+    /**
+     * Returns the number of times a layout was found in the cache
+     */
+    public static int getHitCount()
+    {
+        return cache.hitCount();
+    }
+
+    /**
+     * Returns the number of times a layout was not found in the cache and had to be created
+     */
+    public static int getMissCount()
+    {
+        return cache.missCount();
+    }
+
+    /**
+     * Returns the number of layouts that have been evicted from the cache
+     */
+    public static int getEvictionCount()
+    {
+        return cache.evictionCount();
+    }
+
+    /**
+     * Returns the number of layouts currently stored in the cache
+     */
+    public static int size()
+    {
+        return cache.size();
+    }
+
+    /**
+     * Remove all layouts from the cache
+     *
+     * Buttons that already hold a layout will continue to use it, the layout will just no longer be shared with new
+     * buttons.
+     */
+    public static void clear()
+    {
+        cache.evictAll();
+    }
+
+    /**
+     * Key containing all parameters that affect the shape or appearance of a text layout
+     */
+    private static final class Key
+    {
+        private final String text;
+        private final float textSize;
+        private final Typeface typeface;
+        private final int color;
+        private final int maxLines;
+        private final TextUtils.TruncateAt ellipsize;
+        private final TextLayoutProfile profile;
+        private final int width;
+
+        Key(String text, TextPaint paint, int maxLines, TextUtils.TruncateAt ellipsize, TextLayoutProfile profile,
+            int width)
+        {
+            this.text = text;
+            this.textSize = paint.getTextSize();
+            this.typeface = paint.getTypeface();
+            this.color = paint.getColor();
+            this.maxLines = maxLines;
+            this.ellipsize = ellipsize;
+            this.profile = profile;
+            this.width = width;
+        }
+
+        @Override
+        public boolean equals(final Object o)
+        {
+            if (this == o)
+                return true;
+
+            if (!(o instanceof Key))
+                return false;
+
+            final Key key = (Key)o;
+            return textSize == key.textSize && color == key.color && maxLines == key.maxLines && width == key.width
+                && ellipsize == key.ellipsize && text.equals(key.text) && profile.equals(key.profile)
+                && (typeface == null ? key.typeface == null : typeface.equals(key.typeface));
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int result = text.hashCode();
+            result = 31 * result + Float.floatToIntBits(textSize);
+            result = 31 * result + (typeface != null ? typeface.hashCode() : 0);
+            result = 31 * result + color;
+            result = 31 * result + maxLines;
+            result = 31 * result + (ellipsize != null ? ellipsize.hashCode() : 0);
+            result = 31 * result + profile.hashCode();
+            result = 31 * result + width;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.addisonelliott.segmentedbutton;
+
+import android.os.Build;
+import android.os.Build.VERSION_CODES;
+import android.text.Layout;
+import androidx.annotation.IntDef;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Parameters used for laying out the text of a SegmentedButton
+ *
+ * A profile determines the line breaking strategy, hyphenation frequency, whether or not to include font padding and
+ * the justification mode of the text. Higher quality line breaking and hyphenation is more expensive and not
+ * noticeable for labels on a single line, so the FAST profile is used by default for buttons with a lines count of 1
+ * and no profile attributes. Otherwise, the HIGH_QUALITY profile is used by default since it matches the platform
+ * defaults for wrapped text.
+ *
+ * Note: Break strategy & hyphenation frequency are only supported on Android M (API 23) and above. Justification mode
+ * is only supported on Android O (API 26) and above. These values are ignored on older versions.
+ *
+ * Profiles are immutable and can be shared between buttons.
+ */
+public final class TextLayoutProfile
+{
+    // Predefined profile types, used for the textLayoutProfile attribute in layout XML
+    public final static int PROFILE_FAST = 0;
+    public final static int PROFILE_BALANCED = 1;
+    public final static int PROFILE_HIGH_QUALITY = 2;
+
+    // Interface defined for linting purposes to ensure that a profile value (integer type) is one of the valid values
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({PROFILE_FAST, PROFILE_BALANCED, PROFILE_HIGH_QUALITY})
+    public @interface ProfileType {}
+
+    // Font padding is included by default on Android M and above. Below that, the text was previously laid out without
+    // font padding, so that is kept to prevent the height of buttons from changing
+    private static final boolean DEFAULT_INCLUDE_PAD = Build.VERSION.SDK_INT >= VERSION_CODES.M;
+
+    /**
+     * Simple line breaking with no hyphenation
+     *
+     * This is the cheapest profile and is best for short, single-line labels.
+     */
+    public static final TextLayoutProfile FAST = new TextLayoutProfile(Layout.BREAK_STRATEGY_SIMPLE,
+        Layout.HYPHENATION_FREQUENCY_NONE, DEFAULT_INCLUDE_PAD, Layout.JUSTIFICATION_MODE_NONE);
+
+    /**
+     * Balanced line breaking with normal hyphenation
+     *
+     * Useful for multi-line labels where the lines should be of similar length.
+     */
+    public static final TextLayoutProfile BALANCED = new TextLayoutProfile(Layout.BREAK_STRATEGY_BALANCED,
+        Layout.HYPHENATION_FREQUENCY_NORMAL, DEFAULT_INCLUDE_PAD, Layout.JUSTIFICATION_MODE_NONE);
+
+    /**
+     * High quality line breaking with full hyphenation
+     *
+     * This is the same as the defaults used by TextView and is the most expensive profile.
+     */
+    public static final TextLayoutProfile HIGH_QUALITY = new TextLayoutProfile(Layout.BREAK_STRATEGY_HIGH_QUALITY,
+        Layout.HYPHENATION_FREQUENCY_FULL, DEFAULT_INCLUDE_PAD, Layout.JUSTIFICATION_MODE_NONE);
+
+    // Line breaking strategy, one of the Layout.BREAK_STRATEGY_* values
+    private final int breakStrategy;
+    // Hyphenation frequency, one of the Layout.HYPHENATION_FREQUENCY_* values
+    private final int hyphenationFrequency;
+    // Whether or not to include extra space at the top and bottom of the text for accents & descenders
+    private final boolean includePad;
+    // Justification mode, one of the Layout.JUSTIFICATION_MODE_* values
+    private final int justificationMode;
+
+    /**
+     * Create a new text layout profile
+     *
+     * @param breakStrategy        line breaking strategy, one of the Layout.BREAK_STRATEGY_* values
+     * @param hyphenationFrequency hyphenation frequency, one of the Layout.HYPHENATION_FREQUENCY_* values
+     * @param includePad           whether or not to include extra space for accents & descenders
+     * @param justificationMode    justification mode, one of the Layout.JUSTIFICATION_MODE_* values
+     */
+    public TextLayoutProfile(int breakStrategy, int hyphenationFrequency, boolean includePad, int justificationMode)
+    {
+        this.breakStrategy = breakStrategy;
+        this.hyphenationFrequency = hyphenationFrequency;
+        this.includePad = includePad;
+        this.justificationMode = justificationMode;
+    }
+
+    /**
+     * Return the predefined profile for the given profile type
+     *
+     * @param type one of the PROFILE_* values
+     */
+    public static TextLayoutProfile fromType(@ProfileType int type)
+    {
+        switch (type)
+        {
+            case PROFILE_BALANCED:
+                return BALANCED;
+
+            case PROFILE_HIGH_QUALITY:
+                return HIGH_QUALITY;
+
+            case PROFILE_FAST:
+            default:
+                return FAST;
+        }
+    }
+
+    /**
+     * Returns the line breaking strategy, one of the Layout.BREAK_STRATEGY_* values
+     */
+    public int getBreakStrategy()
+    {
+        return breakStrategy;
+    }
+
+    /**
+     * Returns the hyphenation frequency, one of the Layout.HYPHENATION_FREQUENCY_* values
+     */
+    public int getHyphenationFrequency()
+    {
+        return hyphenationFrequency;
+    }
+
+    /**
+     * Returns whether or not extra space is included at the top and bottom of the text for accents & descenders
+     */
+    public boolean getIncludePad()
+    {
+        return includePad;
+    }
+
+    /**
+     * Returns the justification mode, one of the Layout.JUSTIFICATION_MODE_* values
+     */
+    public int getJustificationMode()
+    {
+        return justificationMode;
+    }
+
+    /**
+     * Return a copy of this profile with a different break strategy
+     */
+    public TextLayoutProfile withBreakStrategy(int breakStrategy)
+    {
+        return new TextLayoutProfile(breakStrategy, hyphenationFrequency, includePad, justificationMode);
+    }
+
+    /**
+     * Return a copy of this profile with a different hyphenation frequency
+     */
+    public TextLayoutProfile withHyphenationFrequency(int hyphenationFrequency)
+    {
+        return new TextLayoutProfile(breakStrategy, hyphenationFrequency, includePad, justificationMode);
+    }
+
+    /**
+     * Return a copy of this profile with a different include pad value
+     */
+    public TextLayoutProfile withIncludePad(boolean includePad)
+    {
+        return new TextLayoutProfile(breakStrategy, hyphenationFrequency, includePad, justificationMode);
+    }
+
+    /**
+     * Return a copy of this profile with a different justification mode
+     */
+    public TextLayoutProfile withJustificationMode(int justificationMode)
+    {
+        return new TextLayoutProfile(breakStrategy, hyphenationFrequency, includePad, justificationMode);
+    }
+
+    @Override
+    public boolean equals(final Object o)
+    {
+        if (this == o)
+            return true;
+
+        if (!(o instanceof TextLayoutProfile))
+            return false;
+
+        final TextLayoutProfile profile = (TextLayoutProfile)o;
+        return breakStrategy == profile.breakStrategy && hyphenationFrequency == profile.hyphenationFrequency
+            && includePad == profile.includePad && justificationMode == profile.justificationMode;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int result = breakStrategy;
+        result = 31 * result + hyphenationFrequency;
+        result = 31 * result + (includePad ? 1 : 0);
+        result = 31 * result + justificationMode;
+        return result;
+    }
+}
@@ -0,0 +1,281 @@
+package com.addisonelliott.segmentedbutton;
+
+import android.graphics.Canvas;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.os.Build.VERSION_CODES;
+import android.text.BoringLayout;
+import android.text.Layout;
+import android.text.PrecomputedText;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Text, paint and layout used for drawing the text of a SegmentedButton in one state (i.e. unselected or selected)
+ *
+ * Each state has its own paint and layout so that the text for each state is measured with its own typeface. The
+ * text, paint and style are fixed once created, a new state should be created if any of these change. The exception is
+ * the text color, which does not affect the shape of the text. A state with a different color is derived with
+ * withColor, which keeps the measurements and only swaps the paint & layout for ones in the new color.
+ *
+ * The layout is retrieved from the TextLayoutCache and so it may be shared with other buttons. If the text is boring
+ * and fits on one line, then the layout is not created until it is drawn. See measure for more information.
+ *
+ * Note: Creating a state is safe to do on a background thread. Once a state is in use by a button, measure and
+ * getLayout should only be called from the UI thread.
+ */
+final class TextLayoutState
+{
+    // Text to display
+    private final String text;
+    // Text to create static layouts from, this is either the text or a PrecomputedText of the text on Android P and
+    // above
+    private final CharSequence layoutText;
+    // Paint used for measuring and drawing the text, shared from the TextStyleRegistry so this should NOT be modified
+    private final TextPaint paint;
+    // Maximum lines count & truncation type for the text
+    private final int linesCount;
+    private final TextUtils.TruncateAt ellipsize;
+    // Line breaking, hyphenation, padding & justification parameters for the text
+    private final TextLayoutProfile profile;
+
+    // Font metrics for the text if it is "boring", i.e. it can be displayed on a single line without any special
+    // handling such as bidirectional text. Will be null if the text is not boring
+    private final BoringLayout.Metrics boringMetrics;
+    // Maximum text width assuming all text is on one line, this is used in onMeasure to calculate the desired width
+    private final int maxWidth;
+
+    // Layout used for drawing the text
+    // This will be a BoringLayout when the text fits on a single line, otherwise it will be a StaticLayout. The layout
+    // is created lazily when first needed, so it will be null after measuring until it is drawn
+    private Layout layout;
+    // Width available for the text, given when measuring
+    private int availableWidth;
+    // Width & height of the text layout, calculated when measuring the text so the layout does not need to be created
+    private int width, height;
+
+    TextLayoutState(@NonNull String text, float textSize, @ColorInt int color, Typeface typeface, int linesCount,
+        @Nullable TextUtils.TruncateAt ellipsize, @NonNull TextLayoutProfile profile)
+    {
+        this(text, textSize, color, typeface, linesCount, ellipsize, profile, false);
+    }
+
+    /**
+     * Create a new text state, optionally shaping & measuring the text ahead of time
+     *
+     * If precompute is true, then on Android P and above, the text is measured once with PrecomputedText using the
+     * paint & profile of this state. Any static layouts created for this state are built from the precomputed text,
+     * so the text is not measured again for each width. This is expensive and should only be done on a background
+     * thread, e.g. in setTextAsync. On older versions, precompute has no effect.
+     */
+    TextLayoutState(@NonNull String text, float textSize, @ColorInt int color, Typeface typeface, int linesCount,
+        @Nullable TextUtils.TruncateAt ellipsize, @NonNull TextLayoutProfile profile, boolean precompute)
+    {
+        this.text = text;
+        this.linesCount = linesCount;
+        this.ellipsize = ellipsize;
+        this.profile = profile;
+
+        // Paint is shared with other buttons that have the same text style
+        paint = TextStyleRegistry.obtainPaint(textSize, color, typeface);
+
+        // Check if the text is boring, if so, the font metrics can be used to measure the text rather than creating
+        // a layout
+        boringMetrics = BoringLayout.isBoring(text, paint);
+
+        if (precompute && Build.VERSION.SDK_INT >= VERSION_CODES.P)
+        {
+            // Parameters must match the static layout builder in TextLayoutCache, otherwise the precomputed
+            // measurements are ignored
+            final PrecomputedText.Params params = new PrecomputedText.Params.Builder(paint)
+                .setBreakStrategy(profile.getBreakStrategy())
+                .setHyphenationFrequency(profile.getHyphenationFrequency())
+                .build();
+            final PrecomputedText precomputedText = PrecomputedText.create(text, params);
+
+            layoutText = precomputedText;
+            maxWidth = boringMetrics != null ? boringMetrics.width
+                : (int)Math.ceil(precomputedText.getWidth(0, text.length()));
+        }
+        else
+        {
+            layoutText = text;
+            maxWidth = boringMetrics != null ? boringMetrics.width : (int)Math.ceil(paint.measureText(text));
+        }
+
+        // Initial kickstart to setup the text layout by assuming the text will be all in one line
+        measure(maxWidth);
+    }
+
+    /**
+     * Create a copy of the given state with a different text color
+     *
+     * The color does not change the shape of the text, so the measurements of the state are kept as is. Only the paint
+     * and layout are replaced with the shared ones for the new color.
+     */
+    private TextLayoutState(@NonNull TextLayoutState state, @ColorInt int color)
+    {
+        text = state.text;
+        layoutText = state.layoutText;
+        linesCount = state.linesCount;
+        ellipsize = state.ellipsize;
+        profile = state.profile;
+        boringMetrics = state.boringMetrics;
+        maxWidth = state.maxWidth;
+        availableWidth = state.availableWidth;
+        width = state.width;
+        height = state.height;
+
+        paint = TextStyleRegistry.obtainPaint(state.paint.getTextSize(), color, state.paint.getTypeface());
+
+        // Same as measure, a static layout is retrieved right away while a boring layout is created lazily
+        if (!isSingleLine())
+            layout = TextLayoutCache.obtain(text, layoutText, paint, availableWidth, linesCount, ellipsize, profile);
+    }
+
+    /**
+     * Return a state with the same text & style as this one but drawn in the given color
+     *
+     * This state is returned if it already has the color.
+     */
+    TextLayoutState withColor(@ColorInt int color)
+    {
+        if (paint.getColor() == color)
+            return this;
+
+        return new TextLayoutState(this, color);
+    }
+
+    /**
+     * Returns the paint used for drawing this text
+     *
+     * Note: This paint is shared with other buttons and the cached layouts and must not be modified.
+     */
+    TextPaint getPaint()
+    {
+        return paint;
+    }
+
+    /**
+     * Returns the text layout profile used for laying out this text
+     */
+    TextLayoutProfile getProfile()
+    {
+        return profile;
+    }
+
+    /**
+     * Returns the width of the text assuming it is all on one line, in pixels
+     */
+    int getMaxWidth()
+    {
+        return maxWidth;
+    }
+
+    /**
+     * Returns the width of the text layout from the last call to measure, in pixels
+     */
+    int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * Returns the height of the text layout from the last call to measure, in pixels
+     */
+    int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * Update the text layout width & height for the given width available for the text
+     *
+     * If the text is boring and fits in the width, then the height is calculated from the font metrics and the layout
+     * is not created until it is drawn. Otherwise, the text will wrap or be ellipsized and so a static layout is
+     * retrieved to determine the height.
+     *
+     * @param availableWidth width, in pixels, available for the text
+     */
+    void measure(int availableWidth)
+    {
+        // Text will never be wider than it is on one line
+        availableWidth = Math.min(availableWidth, maxWidth);
+
+        // Nothing to do if the width is the same
+        if (this.availableWidth == availableWidth && (layout != null || isSingleLine()))
+            return;
+
+        this.availableWidth = availableWidth;
+
+        if (isSingleLine())
+        {
+            // Fast path, text will be on one line so the height is just the font height
+            // The layout is created lazily in getLayout
+            layout = null;
+            width = availableWidth;
+            height = TextLayoutCache.getBoringHeight(boringMetrics, profile);
+        }
+        else
+        {
+            // Retrieve static layout with new width from the cache, this will only create a new layout if no other
+            // button has the same text & style at this width
+            layout = TextLayoutCache.obtain(text, layoutText, paint, availableWidth, linesCount, ellipsize, profile);
+            width = layout.getWidth();
+            height = layout.getHeight();
+        }
+    }
+
+    /**
+     * Return the layout used for drawing the text, creating it if necessary
+     *
+     * If the text is boring and fits in the width given by measuring, then a BoringLayout will be returned.
+     */
+    Layout getLayout()
+    {
+        if (layout == null)
+        {
+            if (isSingleLine())
+            {
+                layout = TextLayoutCache.obtainBoring(text, paint, availableWidth, linesCount, ellipsize, profile,
+                    boringMetrics);
+            }
+            else
+            {
+                layout = TextLayoutCache.obtain(text, layoutText, paint, availableWidth, linesCount, ellipsize,
+                    profile);
+            }
+        }
+
+        return layout;
+    }
+
+    /**
+     * Draw the text layout on the canvas in the color of this state
+     *
+     * @param canvas canvas to draw the text on
+     */
+    void draw(@NonNull Canvas canvas)
+    {
+        getLayout().draw(canvas);
+    }
+
+    /**
+     * Return the layout used for drawing the text if it has been created, otherwise null
+     */
+    Layout peekLayout()
+    {
+        return layout;
+    }
+
+    /**
+     * Whether or not the text is boring and fits on a single line in the available width
+     */
+    private boolean isSingleLine()
+    {
+        return boringMetrics != null && boringMetrics.width <= availableWidth;
+    }
+}
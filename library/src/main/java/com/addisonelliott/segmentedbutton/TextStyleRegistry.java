@@ -0,0 +1,222 @@
+package com.addisonelliott.segmentedbutton;
+
+import android.graphics.Typeface;
+import android.text.TextPaint;
+import android.util.LruCache;
+import androidx.annotation.ColorInt;
+import androidx.annotation.Nullable;
+
+/**
+ * Process-wide registry of the text paints & typefaces used by SegmentedButton
+ *
+ * Screens with many button groups typically use the same font, size and style for every button. Rather than each
+ * button allocating its own TextPaint and Typeface, buttons with equal text style parameters share the same instances
+ * from this registry.
+ *
+ * Paints returned from the registry are immutable by convention and must NEVER be modified since they are shared by
+ * other buttons and by the layouts in TextLayoutCache. Changing the style of a single button is copy-on-write: the
+ * button obtains the paint for its new style from the registry, which creates a new paint if no other button uses
+ * that style. The previous paint is left untouched for the other buttons still using it.
+ *
+ * The least recently used entries are evicted once the registry is full. Evicting an entry does not affect buttons or
+ * layouts that already reference it, the instance is just no longer shared with new buttons.
+ *
+ * Note: The registry is thread-safe, so paints can be obtained on a background thread (e.g. in setTextAsync).
+ */
+public final class TextStyleRegistry
+{
+    // Maximum number of paints & typefaces stored before the least recently used entries are evicted
+    private static final int MAX_PAINTS = 64;
+    private static final int MAX_TYPEFACES = 32;
+
+    private static final LruCache<PaintKey, TextPaint> paints = new LruCache<>(MAX_PAINTS);
+    private static final LruCache<TypefaceKey, Typeface> typefaces = new LruCache<>(MAX_TYPEFACES);
+
+    private TextStyleRegistry()
+    {
+    }
+
+    /**
+     * Return the shared paint for the given text style, creating one if it is not already in the registry
+     *
+     * @param textSize size of the text in pixels
+     * @param color    color of the text
+     * @param typeface typeface of the text, null for the default typeface
+     * @return shared paint that must not be modified
+     */
+    static TextPaint obtainPaint(float textSize, @ColorInt int color, @Nullable Typeface typeface)
+    {
+        final PaintKey key = new PaintKey(textSize, color, typeface);
+
+        TextPaint paint = paints.get(key);
+        if (paint != null)
+            return paint;
+
+        paint = new TextPaint();
+        paint.setAntiAlias(true);
+        paint.setTextSize(textSize);
+        paint.setColor(color);
+        paint.setTypeface(typeface);
+
+        // Another thread may have created the same paint in the meantime, use that one so there is only one instance
+        final TextPaint previous = paints.put(key, paint);
+        if (previous != null)
+        {
+            paints.put(key, previous);
+            return previous;
+        }
+
+        return paint;
+    }
+
+    /**
+     * Return the shared typeface for the given family & style, creating one if it is not already in the registry
+     *
+     * @param family typeface family, null for the default family
+     * @param style  one of the Typeface style constants, e.g. Typeface.BOLD
+     * @return shared typeface
+     */
+    static Typeface obtainTypeface(@Nullable Typeface family, int style)
+    {
+        final TypefaceKey key = new TypefaceKey(family, null, style);
+
+        Typeface typeface = typefaces.get(key);
+        if (typeface == null)
+        {
+            typeface = Typeface.create(family, style);
+            typefaces.put(key, typeface);
+        }
+
+        return typeface;
+    }
+
+    /**
+     * Return the shared typeface for the given family name & style, creating one if it is not already in the registry
+     *
+     * @param familyName name of the font family, e.g. "sans-serif"
+     * @param style      one of the Typeface style constants, e.g. Typeface.BOLD
+     * @return shared typeface
+     */
+    static Typeface obtainTypeface(@Nullable String familyName, int style)
+    {
+        final TypefaceKey key = new TypefaceKey(null, familyName, style);
+
+        Typeface typeface = typefaces.get(key);
+        if (typeface == null)
+        {
+            typeface = Typeface.create(familyName, style);
+            typefaces.put(key, typeface);
+        }
+
+        return typeface;
+    }
+
+    /**
+     * Returns the number of paints currently stored in the registry
+     */
+    public static int getPaintCount()
+    {
+        return paints.size();
+    }
+
+    /**
+     * Returns the number of typefaces currently stored in the registry
+     */
+    public static int getTypefaceCount()
+    {
+        return typefaces.size();
+    }
+
+    /**
+     * Remove all paints & typefaces from the registry
+     *
+     * Buttons that already hold a paint or typeface will continue to use it, it will just no longer be shared with new
+     * buttons.
+     */
+    public static void clear()
+    {
+        paints.evictAll();
+        typefaces.evictAll();
+    }
+
+    /**
+     * Key containing all parameters of a text paint
+     */
+    private static final class PaintKey
+    {
+        private final float textSize;
+        private final int color;
+        private final Typeface typeface;
+
+        PaintKey(float textSize, int color, Typeface typeface)
+        {
+            this.textSize = textSize;
+            this.color = color;
+            this.typeface = typeface;
+        }
+
+        @Override
+        public boolean equals(final Object o)
+        {
+            if (this == o)
+                return true;
+
+            if (!(o instanceof PaintKey))
+                return false;
+
+            final PaintKey key = (PaintKey)o;
+            return textSize == key.textSize && color == key.color
+                && (typeface == null ? key.typeface == null : typeface.equals(key.typeface));
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int result = Float.floatToIntBits(textSize);
+            result = 31 * result + color;
+            result = 31 * result + (typeface != null ? typeface.hashCode() : 0);
+            return result;
+        }
+    }
+
+    /**
+     * Key containing the family (either a typeface or family name) & style of a typeface
+     */
+    private static final class TypefaceKey
+    {
+        private final Typeface family;
+        private final String familyName;
+        private final int style;
+
+        TypefaceKey(Typeface family, String familyName, int style)
+        {
+            this.family = family;
+            this.familyName = familyName;
+            this.style = style;
+        }
+
+        @Override
+        public boolean equals(final Object o)
+        {
+            if (this == o)
+                return true;
+
+            if (!(o instanceof TypefaceKey))
+                return false;
+
+            final TypefaceKey key = (TypefaceKey)o;
+            return style == key.style
+                && (family == null ? key.family == null : family.equals(key.family))
+                && (familyName == null ? key.familyName == null : familyName.equals(key.familyName));
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int result = family != null ? family.hashCode() : 0;
+            result = 31 * result + (familyName != null ? familyName.hashCode() : 0);
+            result = 31 * result + style;
+            return result;
+        }
+    }
+}
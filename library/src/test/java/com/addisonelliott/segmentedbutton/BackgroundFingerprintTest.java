@@ -0,0 +1,134 @@
+package com.addisonelliott.segmentedbutton;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class BackgroundFingerprintTest
+{
+    private ColorDrawable drawable;
+
+    @Before
+    public void setUp()
+    {
+        BitmapPool.clear();
+
+        drawable = new ColorDrawable(Color.RED);
+        drawable.setBounds(0, 0, 100, 50);
+    }
+
+    @Test
+    public void matches_notSet_isFalse()
+    {
+        assertFalse(new BackgroundFingerprint().matches(drawable, 0));
+    }
+
+    @Test
+    public void matches_sameInputs_isTrue()
+    {
+        final BackgroundFingerprint fingerprint = new BackgroundFingerprint();
+        fingerprint.set(drawable, 0);
+
+        assertTrue(fingerprint.matches(drawable, 0));
+    }
+
+    @Test
+    public void matches_boundsResized_isFalse()
+    {
+        final BackgroundFingerprint fingerprint = new BackgroundFingerprint();
+        fingerprint.set(drawable, 0);
+
+        drawable.setBounds(0, 0, 120, 50);
+
+        assertFalse(fingerprint.matches(drawable, 0));
+    }
+
+    @Test
+    public void matches_boundsMoved_isTrue()
+    {
+        final BackgroundFingerprint fingerprint = new BackgroundFingerprint();
+        fingerprint.set(drawable, 0);
+
+        // Only the size of the bounds affects the paint
+        drawable.setBounds(10, 10, 110, 60);
+
+        assertTrue(fingerprint.matches(drawable, 0));
+    }
+
+    @Test
+    public void matches_drawableModified_isFalse()
+    {
+        final BackgroundFingerprint fingerprint = new BackgroundFingerprint();
+        fingerprint.set(drawable, 0);
+
+        assertFalse(fingerprint.matches(drawable, 1));
+    }
+
+    @Test
+    public void matches_differentDrawable_isFalse()
+    {
+        final BackgroundFingerprint fingerprint = new BackgroundFingerprint();
+        fingerprint.set(drawable, 0);
+
+        final ColorDrawable otherDrawable = new ColorDrawable(Color.RED);
+        otherDrawable.setBounds(0, 0, 100, 50);
+
+        assertFalse(fingerprint.matches(otherDrawable, 0));
+    }
+
+    @Test
+    public void clear_invalidatesFingerprint()
+    {
+        final BackgroundFingerprint fingerprint = new BackgroundFingerprint();
+        fingerprint.set(drawable, 0);
+        fingerprint.clear();
+
+        assertFalse(fingerprint.matches(drawable, 0));
+    }
+
+    @Test
+    public void retireRaster_returnsRasterToPoolOnlyOnceReleased()
+    {
+        final BackgroundFingerprint fingerprint = new BackgroundFingerprint();
+        final Bitmap raster = BitmapPool.get(100, 50, Bitmap.Config.ARGB_8888);
+        fingerprint.setRaster(raster);
+
+        // Display lists recorded with the previous paint may still draw the raster
+        fingerprint.retireRaster();
+
+        assertNull(fingerprint.getRaster());
+        assertEquals(0, BitmapPool.getByteCount());
+
+        fingerprint.releaseRetiredRasters();
+
+        assertEquals(raster.getAllocationByteCount(), BitmapPool.getByteCount());
+        assertSame(raster, BitmapPool.get(100, 50, Bitmap.Config.ARGB_8888));
+    }
+
+    @Test
+    public void clear_retiresRaster()
+    {
+        final BackgroundFingerprint fingerprint = new BackgroundFingerprint();
+        fingerprint.setRaster(BitmapPool.get(100, 50, Bitmap.Config.ARGB_8888));
+        fingerprint.set(drawable, 0);
+        fingerprint.clear();
+
+        assertNull(fingerprint.getRaster());
+        assertEquals(0, BitmapPool.getByteCount());
+
+        fingerprint.releaseRetiredRasters();
+
+        assertTrue(BitmapPool.getByteCount() > 0);
+    }
+}
@@ -0,0 +1,104 @@
+package com.addisonelliott.segmentedbutton;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class BitmapPoolTest
+{
+    @Before
+    public void setUp()
+    {
+        BitmapPool.clear();
+    }
+
+    @Test
+    public void get_emptyPool_allocatesBitmap()
+    {
+        final int missCount = BitmapPool.getMissCount();
+
+        final Bitmap bitmap = BitmapPool.get(100, 50, Bitmap.Config.ARGB_8888);
+
+        assertEquals(100, bitmap.getWidth());
+        assertEquals(50, bitmap.getHeight());
+        assertEquals(missCount + 1, BitmapPool.getMissCount());
+    }
+
+    @Test
+    public void get_afterPut_reusesErasedBitmap()
+    {
+        final Bitmap bitmap = BitmapPool.get(100, 50, Bitmap.Config.ARGB_8888);
+        bitmap.eraseColor(Color.RED);
+        BitmapPool.put(bitmap);
+
+        final int hitCount = BitmapPool.getHitCount();
+        final Bitmap reused = BitmapPool.get(100, 50, Bitmap.Config.ARGB_8888);
+
+        assertSame(bitmap, reused);
+        assertEquals(Color.TRANSPARENT, reused.getPixel(0, 0));
+        assertEquals(hitCount + 1, BitmapPool.getHitCount());
+        assertEquals(0, BitmapPool.getByteCount());
+    }
+
+    @Test
+    public void get_smallerSize_reusesReconfiguredBitmap()
+    {
+        final Bitmap bitmap = BitmapPool.get(100, 50, Bitmap.Config.ARGB_8888);
+        BitmapPool.put(bitmap);
+
+        final Bitmap reused = BitmapPool.get(80, 40, Bitmap.Config.ARGB_8888);
+
+        assertSame(bitmap, reused);
+        assertEquals(80, reused.getWidth());
+        assertEquals(40, reused.getHeight());
+    }
+
+    @Test
+    public void get_muchSmallerSize_doesNotHoldLargeAllocation()
+    {
+        final Bitmap bitmap = BitmapPool.get(200, 200, Bitmap.Config.ARGB_8888);
+        BitmapPool.put(bitmap);
+
+        // More than 4x smaller than the pooled allocation, so a new bitmap is allocated instead
+        assertNotSame(bitmap, BitmapPool.get(50, 50, Bitmap.Config.ARGB_8888));
+    }
+
+    @Test
+    public void put_sameBitmapTwice_isStoredOnce()
+    {
+        final Bitmap bitmap = BitmapPool.get(100, 50, Bitmap.Config.ARGB_8888);
+        BitmapPool.put(bitmap);
+        BitmapPool.put(bitmap);
+
+        assertEquals(bitmap.getAllocationByteCount(), BitmapPool.getByteCount());
+        assertSame(bitmap, BitmapPool.get(100, 50, Bitmap.Config.ARGB_8888));
+        assertNotSame(bitmap, BitmapPool.get(100, 50, Bitmap.Config.ARGB_8888));
+    }
+
+    @Test
+    public void put_immutableBitmap_isIgnored()
+    {
+        final Bitmap bitmap = Bitmap.createBitmap(100, 50, Bitmap.Config.ARGB_8888).copy(Bitmap.Config.ARGB_8888,
+            false);
+        BitmapPool.put(bitmap);
+
+        assertEquals(0, BitmapPool.getByteCount());
+    }
+
+    @Test
+    public void clear_removesAllBitmaps()
+    {
+        BitmapPool.put(BitmapPool.get(100, 50, Bitmap.Config.ARGB_8888));
+        BitmapPool.clear();
+
+        assertEquals(0, BitmapPool.getByteCount());
+    }
+}
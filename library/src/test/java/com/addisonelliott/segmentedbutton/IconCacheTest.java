@@ -0,0 +1,93 @@
+package com.addisonelliott.segmentedbutton;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import androidx.test.core.app.ApplicationProvider;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class IconCacheTest
+{
+    private static final int ICON_RES_ID = android.R.drawable.ic_menu_add;
+
+    private Context context;
+
+    @Before
+    public void setUp()
+    {
+        IconCache.clear();
+
+        context = ApplicationProvider.getApplicationContext();
+    }
+
+    @Test
+    public void get_afterPut_returnsSharedBitmap()
+    {
+        final Bitmap bitmap = Bitmap.createBitmap(24, 24, Bitmap.Config.ALPHA_8);
+        IconCache.put(context, ICON_RES_ID, 24, 24, true, bitmap);
+
+        final int hitCount = IconCache.getHitCount();
+
+        assertSame(bitmap, IconCache.get(context, ICON_RES_ID, 24, 24, true));
+        assertEquals(hitCount + 1, IconCache.getHitCount());
+    }
+
+    @Test
+    public void get_notRasterized_isMiss()
+    {
+        final int missCount = IconCache.getMissCount();
+
+        assertNull(IconCache.get(context, ICON_RES_ID, 24, 24, true));
+        assertEquals(missCount + 1, IconCache.getMissCount());
+    }
+
+    @Test
+    public void get_differentSizeOrMode_isMiss()
+    {
+        IconCache.put(context, ICON_RES_ID, 24, 24, true, Bitmap.createBitmap(24, 24, Bitmap.Config.ALPHA_8));
+
+        assertNull(IconCache.get(context, ICON_RES_ID, 48, 48, true));
+        assertNull(IconCache.get(context, ICON_RES_ID, 24, 24, false));
+        assertNull(IconCache.get(context, android.R.drawable.ic_menu_delete, 24, 24, true));
+    }
+
+    @Test
+    public void get_differentUiMode_isMiss()
+    {
+        IconCache.put(context, ICON_RES_ID, 24, 24, false, Bitmap.createBitmap(24, 24, Bitmap.Config.ARGB_8888));
+
+        final Configuration configuration = new Configuration(context.getResources().getConfiguration());
+        configuration.uiMode = (configuration.uiMode & ~Configuration.UI_MODE_NIGHT_MASK)
+            | Configuration.UI_MODE_NIGHT_YES;
+        final Context nightContext = context.createConfigurationContext(configuration);
+
+        assertNull(IconCache.get(nightContext, ICON_RES_ID, 24, 24, false));
+    }
+
+    @Test
+    public void put_countsBitmapBytes()
+    {
+        final Bitmap bitmap = Bitmap.createBitmap(24, 24, Bitmap.Config.ARGB_8888);
+        IconCache.put(context, ICON_RES_ID, 24, 24, false, bitmap);
+
+        assertEquals(bitmap.getByteCount(), IconCache.getByteCount());
+    }
+
+    @Test
+    public void clear_removesAllBitmaps()
+    {
+        IconCache.put(context, ICON_RES_ID, 24, 24, true, Bitmap.createBitmap(24, 24, Bitmap.Config.ALPHA_8));
+        IconCache.clear();
+
+        assertEquals(0, IconCache.getByteCount());
+        assertNull(IconCache.get(context, ICON_RES_ID, 24, 24, true));
+    }
+}
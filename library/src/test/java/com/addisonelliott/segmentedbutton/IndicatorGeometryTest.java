@@ -0,0 +1,71 @@
+package com.addisonelliott.segmentedbutton;
+
+import static org.junit.Assert.assertEquals;
+
+import android.graphics.RectF;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class IndicatorGeometryTest
+{
+    private static final float DELTA = 0.001f;
+
+    @Test
+    public void setIndicatorRect_noOffset_coversStartButton()
+    {
+        final RectF rect = new RectF();
+
+        final float baseWidth = IndicatorGeometry.setIndicatorRect(rect, 100.0f, 50.0f, 150.0f, 80.0f, 0.0f, 0.0f,
+            40.0f);
+
+        assertEquals(100.0f, rect.left, DELTA);
+        assertEquals(150.0f, rect.right, DELTA);
+        assertEquals(40.0f, rect.height(), DELTA);
+        assertEquals(50.0f, baseWidth, DELTA);
+    }
+
+    @Test
+    public void setIndicatorRect_offset_interpolatesBetweenButtons()
+    {
+        final RectF rect = new RectF();
+
+        final float baseWidth = IndicatorGeometry.setIndicatorRect(rect, 100.0f, 50.0f, 150.0f, 80.0f, 0.75f, 0.0f,
+            40.0f);
+
+        assertEquals(137.5f, rect.left, DELTA);
+        assertEquals(210.0f, rect.right, DELTA);
+        // Nearest in size to the end button
+        assertEquals(80.0f, baseWidth, DELTA);
+    }
+
+    @Test
+    public void setIndicatorRect_buttonCoordinates_matchGroupCoordinates()
+    {
+        final RectF groupRect = new RectF();
+        final RectF startRect = new RectF();
+        final RectF endRect = new RectF();
+
+        // Same indicator in the coordinates of the group, the start button & the end button
+        IndicatorGeometry.setIndicatorRect(groupRect, 100.0f, 50.0f, 150.0f, 80.0f, 0.25f, 0.0f, 40.0f);
+        IndicatorGeometry.setIndicatorRect(startRect, 0.0f, 50.0f, 50.0f, 80.0f, 0.25f, 0.0f, 40.0f);
+        IndicatorGeometry.setIndicatorRect(endRect, -50.0f, 50.0f, 0.0f, 80.0f, 0.25f, 0.0f, 40.0f);
+
+        assertEquals(groupRect.left - 100.0f, startRect.left, DELTA);
+        assertEquals(groupRect.right - 100.0f, startRect.right, DELTA);
+        assertEquals(groupRect.left - 150.0f, endRect.left, DELTA);
+        assertEquals(groupRect.right - 150.0f, endRect.right, DELTA);
+    }
+
+    @Test
+    public void setIndicatorRect_nearestButtonHasNoWidth_returnsIndicatorWidth()
+    {
+        final RectF rect = new RectF();
+
+        final float baseWidth = IndicatorGeometry.setIndicatorRect(rect, 100.0f, 50.0f, 150.0f, 0.0f, 0.5f, 0.0f,
+            40.0f);
+
+        assertEquals(rect.width(), baseWidth, DELTA);
+    }
+}
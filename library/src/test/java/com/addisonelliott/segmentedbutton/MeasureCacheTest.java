@@ -0,0 +1,82 @@
+package com.addisonelliott.segmentedbutton;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+
+public class MeasureCacheTest
+{
+    @Test
+    public void indexOf_empty_isMiss()
+    {
+        final MeasureCache cache = new MeasureCache();
+
+        assertEquals(-1, cache.indexOf(100, 50));
+    }
+
+    @Test
+    public void indexOf_afterPut_returnsResult()
+    {
+        final MeasureCache cache = new MeasureCache();
+        cache.put(100, 50, 120, 100, 40);
+
+        final int index = cache.indexOf(100, 50);
+
+        assertEquals(120, cache.getDesiredWidth(index));
+        assertEquals(100, cache.getWidth(index));
+        assertEquals(40, cache.getHeight(index));
+    }
+
+    @Test
+    public void indexOf_differentSpecs_isMiss()
+    {
+        final MeasureCache cache = new MeasureCache();
+        cache.put(100, 50, 120, 100, 40);
+
+        assertEquals(-1, cache.indexOf(100, 60));
+        assertEquals(-1, cache.indexOf(90, 50));
+    }
+
+    @Test
+    public void put_sameSpecs_replacesResult()
+    {
+        final MeasureCache cache = new MeasureCache();
+        cache.put(100, 50, 120, 100, 40);
+        cache.put(100, 50, 130, 100, 45);
+        cache.put(200, 50, 130, 130, 45);
+        cache.put(300, 50, 130, 130, 45);
+
+        // Replacing a result does not take up another slot, so all three specs are still stored
+        final int index = cache.indexOf(100, 50);
+        assertEquals(130, cache.getDesiredWidth(index));
+        assertEquals(45, cache.getHeight(index));
+        assertNotEquals(-1, cache.indexOf(200, 50));
+        assertNotEquals(-1, cache.indexOf(300, 50));
+    }
+
+    @Test
+    public void put_full_replacesOldestResult()
+    {
+        final MeasureCache cache = new MeasureCache();
+        cache.put(100, 50, 100, 100, 40);
+        cache.put(200, 50, 200, 200, 40);
+        cache.put(300, 50, 300, 300, 40);
+        cache.put(400, 50, 400, 400, 40);
+
+        assertEquals(-1, cache.indexOf(100, 50));
+        assertEquals(200, cache.getWidth(cache.indexOf(200, 50)));
+        assertEquals(300, cache.getWidth(cache.indexOf(300, 50)));
+        assertEquals(400, cache.getWidth(cache.indexOf(400, 50)));
+    }
+
+    @Test
+    public void clear_removesAllResults()
+    {
+        final MeasureCache cache = new MeasureCache();
+        cache.put(100, 50, 120, 100, 40);
+        cache.clear();
+
+        assertEquals(-1, cache.indexOf(100, 50));
+    }
+}
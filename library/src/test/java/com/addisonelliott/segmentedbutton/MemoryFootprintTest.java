@@ -0,0 +1,99 @@
+package com.addisonelliott.segmentedbutton;
+
+import static org.junit.Assert.assertEquals;
+
+import android.graphics.Bitmap;
+import android.graphics.Path;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class MemoryFootprintTest
+{
+    @Test
+    public void addBackgroundBitmap_countsBytes()
+    {
+        final MemoryFootprint footprint = new MemoryFootprint();
+        final Bitmap bitmap = Bitmap.createBitmap(100, 50, Bitmap.Config.ARGB_8888);
+
+        footprint.addBackgroundBitmap(bitmap);
+
+        assertEquals(1, footprint.getBackgroundBitmapCount());
+        assertEquals(bitmap.getAllocationByteCount(), footprint.getBackgroundBitmapBytes());
+        assertEquals(footprint.getBackgroundBitmapBytes(), footprint.getTotalBitmapBytes());
+    }
+
+    @Test
+    public void addBitmap_shared_isCountedOnce()
+    {
+        final MemoryFootprint footprint = new MemoryFootprint();
+        final Bitmap bitmap = Bitmap.createBitmap(24, 24, Bitmap.Config.ALPHA_8);
+
+        // Icons from the IconCache are shared by every button that displays them
+        footprint.addDrawableBitmap(bitmap);
+        footprint.addDrawableBitmap(bitmap);
+        footprint.addBackgroundBitmap(bitmap);
+
+        assertEquals(1, footprint.getDrawableBitmapCount());
+        assertEquals(0, footprint.getBackgroundBitmapCount());
+        assertEquals(bitmap.getAllocationByteCount(), footprint.getTotalBitmapBytes());
+    }
+
+    @Test
+    public void addBitmap_recycled_isNotCounted()
+    {
+        final MemoryFootprint footprint = new MemoryFootprint();
+        final Bitmap bitmap = Bitmap.createBitmap(24, 24, Bitmap.Config.ARGB_8888);
+        bitmap.recycle();
+
+        footprint.addDrawableBitmap(bitmap);
+
+        assertEquals(0, footprint.getDrawableBitmapCount());
+        assertEquals(0, footprint.getTotalBitmapBytes());
+    }
+
+    @Test
+    public void add_null_isIgnored()
+    {
+        final MemoryFootprint footprint = new MemoryFootprint();
+
+        footprint.addBackgroundBitmap(null);
+        footprint.addDrawableBitmap(null);
+        footprint.addPath(null);
+        footprint.addTextLayout(null);
+        footprint.addRippleDrawable(null);
+
+        assertEquals(0, footprint.getBackgroundBitmapCount());
+        assertEquals(0, footprint.getDrawableBitmapCount());
+        assertEquals(0, footprint.getPathCount());
+        assertEquals(0, footprint.getTextLayoutCount());
+        assertEquals(0, footprint.getRippleDrawableCount());
+    }
+
+    @Test
+    public void addPath_countsDistinctPaths()
+    {
+        final MemoryFootprint footprint = new MemoryFootprint();
+        final Path path = new Path();
+
+        footprint.addPath(path);
+        footprint.addPath(path);
+        footprint.addPath(new Path());
+
+        assertEquals(2, footprint.getPathCount());
+    }
+
+    @Test
+    public void addTextLayout_shared_isCountedOnce()
+    {
+        final MemoryFootprint footprint = new MemoryFootprint();
+        final Object layout = new Object();
+
+        // The unselected & selected text share a layout when they have the same typeface
+        footprint.addTextLayout(layout);
+        footprint.addTextLayout(layout);
+
+        assertEquals(1, footprint.getTextLayoutCount());
+    }
+}
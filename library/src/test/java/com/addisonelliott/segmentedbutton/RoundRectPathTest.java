@@ -0,0 +1,104 @@
+package com.addisonelliott.segmentedbutton;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import android.graphics.Path;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class RoundRectPathTest
+{
+    @Test
+    public void size_notBuilt_isEmpty()
+    {
+        final RoundRectPath roundRectPath = new RoundRectPath();
+
+        assertEquals(0, roundRectPath.size());
+        assertEquals(0, roundRectPath.getBuildCount());
+    }
+
+    @Test
+    public void get_sameGeometry_reusesPath()
+    {
+        final RoundRectPath roundRectPath = new RoundRectPath();
+
+        final Path path = roundRectPath.get(100.0f, 50.0f, 10.0f);
+        final Path cachedPath = roundRectPath.get(100.0f, 50.0f, 10.0f);
+
+        assertSame(path, cachedPath);
+        assertEquals(1, roundRectPath.size());
+        assertEquals(1, roundRectPath.getBuildCount());
+    }
+
+    @Test
+    public void get_previousWidth_reusesPath()
+    {
+        final RoundRectPath roundRectPath = new RoundRectPath();
+
+        // Moving the selected button back & forth between buttons of different widths only builds one path per width
+        final Path path = roundRectPath.get(100.0f, 50.0f, 10.0f);
+        final Path otherPath = roundRectPath.get(120.0f, 50.0f, 10.0f);
+
+        assertNotSame(path, otherPath);
+        assertSame(path, roundRectPath.get(100.0f, 50.0f, 10.0f));
+        assertSame(otherPath, roundRectPath.get(120.0f, 50.0f, 10.0f));
+        assertEquals(2, roundRectPath.size());
+        assertEquals(2, roundRectPath.getBuildCount());
+    }
+
+    @Test
+    public void get_full_replacesOldestPath()
+    {
+        final RoundRectPath roundRectPath = new RoundRectPath();
+
+        for (int i = 1; i <= 5; ++i)
+            roundRectPath.get(i * 100.0f, 50.0f, 10.0f);
+
+        // The path for the first width was replaced by the last width
+        roundRectPath.get(500.0f, 50.0f, 10.0f);
+        assertEquals(5, roundRectPath.getBuildCount());
+        roundRectPath.get(100.0f, 50.0f, 10.0f);
+        assertEquals(6, roundRectPath.getBuildCount());
+        assertEquals(4, roundRectPath.size());
+    }
+
+    @Test
+    public void get_differentSize_buildsPath()
+    {
+        final RoundRectPath roundRectPath = new RoundRectPath();
+
+        roundRectPath.get(100.0f, 50.0f, 10.0f);
+        roundRectPath.get(120.0f, 50.0f, 10.0f);
+        roundRectPath.get(120.0f, 60.0f, 10.0f);
+
+        assertEquals(3, roundRectPath.getBuildCount());
+    }
+
+    @Test
+    public void get_differentRadii_removesOtherPaths()
+    {
+        final RoundRectPath roundRectPath = new RoundRectPath();
+
+        roundRectPath.get(100.0f, 50.0f, 10.0f);
+        roundRectPath.get(120.0f, 50.0f, 10.0f);
+        roundRectPath.get(100.0f, 50.0f, 10.0f, 0.0f, 0.0f, 10.0f);
+        roundRectPath.get(100.0f, 50.0f, 10.0f, 0.0f, 0.0f, 10.0f);
+
+        assertEquals(1, roundRectPath.size());
+        assertEquals(3, roundRectPath.getBuildCount());
+    }
+
+    @Test
+    public void get_rebuilt_reusesPathInstance()
+    {
+        final RoundRectPath roundRectPath = new RoundRectPath();
+
+        final Path path = roundRectPath.get(100.0f, 50.0f, 10.0f);
+
+        assertSame(path, roundRectPath.get(200.0f, 50.0f, 0.0f));
+    }
+}
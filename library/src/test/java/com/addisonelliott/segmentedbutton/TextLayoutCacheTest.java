@@ -0,0 +1,116 @@
+package com.addisonelliott.segmentedbutton;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import android.graphics.Color;
+import android.graphics.Typeface;
+import android.text.Layout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class TextLayoutCacheTest
+{
+    private static final String TEXT = "Day Week Month";
+
+    private TextPaint paint;
+
+    @Before
+    public void setUp()
+    {
+        TextLayoutCache.clear();
+        TextStyleRegistry.clear();
+
+        paint = TextStyleRegistry.obtainPaint(14.0f, Color.BLACK, Typeface.DEFAULT);
+    }
+
+    @Test
+    public void obtain_sameParameters_returnsCachedLayout()
+    {
+        final int hitCount = TextLayoutCache.getHitCount();
+        final int missCount = TextLayoutCache.getMissCount();
+
+        final Layout layout = TextLayoutCache.obtain(TEXT, paint, 100, 2, TextUtils.TruncateAt.END,
+            TextLayoutProfile.FAST);
+        final Layout cachedLayout = TextLayoutCache.obtain(TEXT, paint, 100, 2, TextUtils.TruncateAt.END,
+            TextLayoutProfile.FAST);
+
+        assertSame(layout, cachedLayout);
+        assertEquals(missCount + 1, TextLayoutCache.getMissCount());
+        assertEquals(hitCount + 1, TextLayoutCache.getHitCount());
+        assertEquals(1, TextLayoutCache.size());
+    }
+
+    @Test
+    public void obtain_differentWidth_createsNewLayout()
+    {
+        final int missCount = TextLayoutCache.getMissCount();
+
+        final Layout layout = TextLayoutCache.obtain(TEXT, paint, 100, 2, null, TextLayoutProfile.FAST);
+        final Layout otherLayout = TextLayoutCache.obtain(TEXT, paint, 50, 2, null, TextLayoutProfile.FAST);
+
+        assertNotSame(layout, otherLayout);
+        assertEquals(missCount + 2, TextLayoutCache.getMissCount());
+        assertEquals(2, TextLayoutCache.size());
+    }
+
+    @Test
+    public void obtain_differentProfile_createsNewLayout()
+    {
+        final Layout layout = TextLayoutCache.obtain(TEXT, paint, 100, 2, null, TextLayoutProfile.FAST);
+        final Layout otherLayout = TextLayoutCache.obtain(TEXT, paint, 100, 2, null,
+            TextLayoutProfile.HIGH_QUALITY);
+
+        assertNotSame(layout, otherLayout);
+    }
+
+    @Test
+    public void obtain_differentTextSize_createsNewLayout()
+    {
+        final TextPaint otherPaint = TextStyleRegistry.obtainPaint(20.0f, Color.BLACK, Typeface.DEFAULT);
+
+        final Layout layout = TextLayoutCache.obtain(TEXT, paint, 100, 2, null, TextLayoutProfile.FAST);
+        final Layout otherLayout = TextLayoutCache.obtain(TEXT, otherPaint, 100, 2, null, TextLayoutProfile.FAST);
+
+        assertNotSame(layout, otherLayout);
+    }
+
+    @Test
+    public void obtain_differentColor_createsNewLayout()
+    {
+        final TextPaint otherPaint = TextStyleRegistry.obtainPaint(14.0f, Color.RED, Typeface.DEFAULT);
+
+        // Layouts draw with the color of their shared paint, so layouts in a different color cannot be shared
+        final Layout layout = TextLayoutCache.obtain(TEXT, paint, 100, 2, null, TextLayoutProfile.FAST);
+        final Layout otherLayout = TextLayoutCache.obtain(TEXT, otherPaint, 100, 2, null, TextLayoutProfile.FAST);
+
+        assertNotSame(layout, otherLayout);
+        assertEquals(Color.RED, otherLayout.getPaint().getColor());
+    }
+
+    @Test
+    public void obtain_layoutText_isKeyedByText()
+    {
+        final Layout layout = TextLayoutCache.obtain(TEXT, new StringBuilder(TEXT), paint, 100, 2, null,
+            TextLayoutProfile.FAST);
+        final Layout cachedLayout = TextLayoutCache.obtain(TEXT, paint, 100, 2, null, TextLayoutProfile.FAST);
+
+        assertSame(layout, cachedLayout);
+    }
+
+    @Test
+    public void clear_removesAllLayouts()
+    {
+        final Layout layout = TextLayoutCache.obtain(TEXT, paint, 100, 2, null, TextLayoutProfile.FAST);
+        TextLayoutCache.clear();
+
+        assertEquals(0, TextLayoutCache.size());
+        assertNotSame(layout, TextLayoutCache.obtain(TEXT, paint, 100, 2, null, TextLayoutProfile.FAST));
+    }
+}